@@ -1,15 +1,89 @@
 package com.mini_jenkin.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Configuration
 public class ExecutorConfig {
+
+    @Value("${build.workers:5}")
+    private int buildWorkers;
+
+    @Value("${build.git.prefetch.threads:2}")
+    private int prefetchThreads;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Bean
-    public ExecutorService executorService() {
-        return Executors.newFixedThreadPool(5);
+    public ExecutorService buildWorkerExecutor() {
+        return monitored("build.workers", buildWorkers, "build-worker-");
+    }
+
+    @Bean
+    public ExecutorService notificationExecutor() {
+        return monitored("build.notifier", 1, "build-notifier-");
+    }
+
+    @Bean
+    public ExecutorService projectLogFlushExecutor() {
+        return monitored("project.logs.flusher", 1, "project-log-flusher-");
+    }
+
+    @Bean
+    public ExecutorService logCompactionExecutor() {
+        return monitored("log.compactor", 1, "log-compactor-");
+    }
+
+    @Bean
+    public ExecutorService cleanupExecutor() {
+        return monitored("project.cleanup", 1, "project-cleanup-");
+    }
+
+    @Bean
+    public ExecutorService workspaceMeasureExecutor() {
+        return monitored("workspace.measure", 1, "workspace-measure-");
+    }
+
+    @Bean
+    public ExecutorService repositoryPrefetchExecutor() {
+        // below the build workers' priority, a prefetch must not slow down running builds
+        ThreadFactory named = namedThreadFactory("repo-prefetch-");
+        ThreadFactory lowPriority = runnable -> {
+            Thread thread = named.newThread(runnable);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        };
+        return ExecutorServiceMetrics.monitor(meterRegistry, Executors.newFixedThreadPool(prefetchThreads, lowPriority), "repo.prefetch");
+    }
+
+    @Bean
+    public ScheduledExecutorService traceSamplerExecutor() {
+        return ExecutorServiceMetrics.monitor(meterRegistry, new ScheduledThreadPoolExecutor(1, namedThreadFactory("trace-sampler-")), "trace.sampler");
+    }
+
+    // a plain fixed pool rather than newSingleThreadExecutor's wrapper, so its active and queued counts can be read
+    private ExecutorService monitored(String name, int threads, String threadPrefix) {
+        return ExecutorServiceMetrics.monitor(meterRegistry, Executors.newFixedThreadPool(threads, namedThreadFactory(threadPrefix)), name);
+    }
+
+    static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
 }
@@ -0,0 +1,103 @@
+package com.mini_jenkin.controller;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.StageExecution;
+import com.mini_jenkin.payload.ApiResponse;
+import com.mini_jenkin.payload.BuildQueuePosition;
+import com.mini_jenkin.payload.LogRange;
+import com.mini_jenkin.payload.TraceFormat;
+import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
+import com.mini_jenkin.service.serviceInterface.ProjectLogServiceInterface;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/builds")
+public class BuildController {
+
+    @Autowired
+    private ProjectExecutionServiceInterface projectExecutionService;
+
+    @Autowired
+    private ProjectLogServiceInterface projectLogService;
+
+    @GetMapping("/queue")
+    public ResponseEntity<ApiResponse<List<BuildQueuePosition>>> getQueue() {
+        return ResponseEntity.ok(ApiResponse.success(projectExecutionService.getQueue(), "Build queue fetched successfully"));
+    }
+
+    @GetMapping("/{buildId}/queue-position")
+    public ResponseEntity<ApiResponse<BuildQueuePosition>> getQueuePosition(@PathVariable Long buildId) {
+        return ResponseEntity.ok(ApiResponse.success(projectExecutionService.getQueuePosition(buildId), "Queue position fetched successfully"));
+    }
+
+    @PostMapping("/{buildId}/cancel")
+    public ResponseEntity<ApiResponse<Build>> cancelBuild(@PathVariable Long buildId) {
+        return ResponseEntity.ok(ApiResponse.success(projectExecutionService.cancelBuild(buildId), "Build cancellation requested"));
+    }
+
+    @GetMapping("/{buildId}/log")
+    public ResponseEntity<ApiResponse<LogRange>> getBuildLog(@PathVariable Long buildId,
+                                                             @RequestParam(defaultValue = "0") long offset,
+                                                             @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(projectLogService.getBuildLog(buildId, offset, limit), "Build log fetched successfully"));
+    }
+
+    @GetMapping("/{buildId}/log/tail")
+    public ResponseEntity<ApiResponse<LogRange>> getBuildLogTail(@PathVariable Long buildId,
+                                                                 @RequestParam(defaultValue = "200") int lines) {
+        return ResponseEntity.ok(ApiResponse.success(projectLogService.getBuildLogTail(buildId, lines), "Build log tail fetched successfully"));
+    }
+
+    @GetMapping(value = "/{buildId}/log/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamBuildLog(@PathVariable Long buildId,
+                                                        @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                        @RequestParam(defaultValue = "0") long offset) {
+        // the event id is the line number, a reconnecting EventSource resumes after the last line it saw
+        long from = lastEventId != null ? lastEventId + 1 : offset;
+        return projectLogService.followBuildLog(buildId, from)
+                .map(line -> ServerSentEvent.<String>builder()
+                        .id(String.valueOf(line.getLineNo()))
+                        .event("log")
+                        .data(line.getText())
+                        .build());
+    }
+
+    @GetMapping("/{buildId}/stages")
+    public ResponseEntity<ApiResponse<List<StageExecution>>> getBuildStages(@PathVariable Long buildId) {
+        return ResponseEntity.ok(ApiResponse.success(projectExecutionService.getBuildStages(buildId), "Build stages fetched successfully"));
+    }
+
+    /**
+     * The build's timeline as a downloadable file, for Perfetto (CHROME) or OpenTelemetry tooling (OTLP).
+     */
+    @GetMapping("/{buildId}/trace")
+    public ResponseEntity<Map<String, Object>> getBuildTrace(@PathVariable Long buildId,
+                                                             @RequestParam(defaultValue = "CHROME") TraceFormat format) {
+        String fileName = "build-" + buildId + (format == TraceFormat.OTLP ? ".otlp.json" : ".trace.json");
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(projectExecutionService.getBuildTrace(buildId, format));
+    }
+
+    @GetMapping("/{buildId}")
+    public ResponseEntity<ApiResponse<Build>> getBuild(@PathVariable Long buildId) {
+        return ResponseEntity.ok(ApiResponse.success(projectExecutionService.getBuild(buildId), "Build fetched successfully"));
+    }
+}
@@ -1,18 +1,31 @@
 package com.mini_jenkin.controller;
 
 import com.mini_jenkin.dto.PipelineUpdateRequest;
+import com.mini_jenkin.entity.BuildStatus;
 import com.mini_jenkin.entity.PipelineConfig;
 import com.mini_jenkin.entity.Project;
 import com.mini_jenkin.entity.ProjectConfig;
 import com.mini_jenkin.payload.ApiResponse;
+import com.mini_jenkin.payload.BuildLogSummary;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.HistoryQuery;
+import com.mini_jenkin.payload.ProjectBuildStats;
+import com.mini_jenkin.payload.ProjectLogEntry;
 import com.mini_jenkin.payload.ProjectRequest;
+import com.mini_jenkin.payload.WorkspaceUsage;
+import com.mini_jenkin.payload.WorkspaceUsageReport;
 import com.mini_jenkin.service.serviceInterface.ProjectServiceInterface;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
 @RestController
 @Slf4j
 @RequestMapping("/project")
@@ -46,19 +59,22 @@ public class ProjectController {
     }
 
 
-    @GetMapping("/build-logs/{projectId}")
-    public ResponseEntity<ApiResponse<Object>> getBuildLogsByProjectId(@PathVariable Long projectId) {
-        return ResponseEntity.ok(ApiResponse.success(projectService.getAllBuildLogs(projectId), "Build logs fetched successfully"));
+    @GetMapping({"/build-logs/{projectId}", "/build/all/{projectId}"})
+    public ResponseEntity<ApiResponse<CursorPage<BuildLogSummary>>> getBuildLogsByProjectId(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) BuildStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        HistoryQuery query = HistoryQuery.builder().cursor(cursor).limit(limit).status(status).from(from).to(to).build();
+        return ResponseEntity.ok(ApiResponse.success(projectService.getBuildHistory(projectId, query), "Build logs fetched successfully"));
     }
 
     @GetMapping("/build/{id}")
     public ResponseEntity<ApiResponse<Object>> getBuildLogs(@PathVariable Integer id) {
         return ResponseEntity.ok(ApiResponse.success(projectService.getBuildLogById(id), "Build log fetched successfully"));
     }
-    @GetMapping("/build/all/{projectId}")
-    public ResponseEntity<ApiResponse<Object>> getAllBuildLogs(@PathVariable Long projectId) {
-        return ResponseEntity.ok(ApiResponse.success(projectService.getAllBuildLogs(projectId), "All build logs fetched successfully"));
-    }
 
     @GetMapping("/{projectId}")
     public ResponseEntity<ApiResponse<Object>> getProject(@PathVariable Long projectId) {
@@ -73,8 +89,14 @@ public class ProjectController {
     }
 
     @GetMapping("/all-logs/{projectId}")
-    public ResponseEntity<ApiResponse<Object>> getAllLogs(@PathVariable Long projectId) {
-        return ResponseEntity.ok(ApiResponse.success(projectService.getAllProjectLogs(projectId), "Logs fetched successfully"));
+    public ResponseEntity<ApiResponse<CursorPage<ProjectLogEntry>>> getAllLogs(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        HistoryQuery query = HistoryQuery.builder().cursor(cursor).limit(limit).from(from).to(to).build();
+        return ResponseEntity.ok(ApiResponse.success(projectService.getProjectLogPage(projectId, query), "Logs fetched successfully"));
     }
 
     @PostMapping("/validate/github-url")
@@ -90,16 +112,39 @@ public class ProjectController {
     }
 
     @DeleteMapping("/{projectId}")
-    public ResponseEntity<ApiResponse<Void>> deleteProject(@PathVariable Long projectId) {
-        projectService.deleteProject(projectId);
-        return ResponseEntity.status(HttpStatus.OK)
-                .body(ApiResponse.success(null, "Project deleted successfully"));
+    public ResponseEntity<ApiResponse<DeletionJob>> deleteProject(@PathVariable Long projectId) {
+        DeletionJob job = projectService.deleteProject(projectId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(job, "Project deletion started"));
     }
 
     @DeleteMapping("/clear-logs/{projectId}")
-    public ResponseEntity<ApiResponse<Void>> clearLogs(@PathVariable Long projectId) {
-        projectService.clearProjectLogs(projectId);
-        return ResponseEntity.status(HttpStatus.OK)
-                .body(ApiResponse.success(null, "Project logs cleared successfully"));
+    public ResponseEntity<ApiResponse<DeletionJob>> clearLogs(@PathVariable Long projectId) {
+        DeletionJob job = projectService.clearProjectLogs(projectId);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(job, "Clearing project logs started"));
+    }
+
+    @GetMapping("/{projectId}/stats")
+    public ResponseEntity<ApiResponse<ProjectBuildStats>> getProjectStats(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(ApiResponse.success(projectService.getProjectStats(projectId, from, to), "Project stats fetched successfully"));
+    }
+
+    @GetMapping("/{projectId}/workspace")
+    public ResponseEntity<ApiResponse<WorkspaceUsage>> getWorkspaceUsage(@PathVariable Long projectId) {
+        return ResponseEntity.ok(ApiResponse.success(projectService.getWorkspaceUsage(projectId), "Workspace usage fetched successfully"));
+    }
+
+    @GetMapping("/workspaces/usage")
+    public ResponseEntity<ApiResponse<WorkspaceUsageReport>> getWorkspaceUsageReport() {
+        return ResponseEntity.ok(ApiResponse.success(projectService.getWorkspaceUsageReport(), "Workspace usage fetched successfully"));
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ApiResponse<DeletionJob>> getDeletionJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(ApiResponse.success(projectService.getDeletionJob(jobId), "Deletion job fetched successfully"));
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.mini_jenkin.controller;
 
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildTrigger;
 import com.mini_jenkin.payload.ApiResponse;
 import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,10 +17,10 @@ public class ProjectExecutionController {
     private ProjectExecutionServiceInterface projectExecutionService;
 
     @PostMapping("/execute")
-    public ResponseEntity<ApiResponse<Object>> execute(@PathVariable("projectId") Long projectId) throws Exception {
-        Object executionResult = projectExecutionService.executeProject(projectId);
-        return ResponseEntity.status(HttpStatus.OK)
-                .body(ApiResponse.success(executionResult, "Project execution started successfully"));
+    public ResponseEntity<ApiResponse<Build>> execute(@PathVariable("projectId") Long projectId) {
+        Build build = projectExecutionService.executeProject(projectId, BuildTrigger.MANUAL);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(build, "Project execution queued successfully"));
     }
 
     @PostMapping("/schedule-execution")
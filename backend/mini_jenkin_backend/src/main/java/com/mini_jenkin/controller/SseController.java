@@ -1,31 +1,54 @@
 package com.mini_jenkin.controller;
 
-import com.mini_jenkin.entity.Project;
-import com.mini_jenkin.repository.ProjectRepository;
+import com.mini_jenkin.entity.User;
+import com.mini_jenkin.exception.ForbiddenException;
+import com.mini_jenkin.payload.ApiResponse;
+import com.mini_jenkin.payload.ProjectUpdateEvent;
+import com.mini_jenkin.payload.ProjectUpdateStats;
+import com.mini_jenkin.service.events.ProjectEventBus;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import reactor.core.publisher.Flux;
 
-import java.time.Duration;
-import java.time.Instant;
+import java.util.List;
 
 @Controller
 public class SseController {
 
     @Autowired
-    private ProjectRepository projectRepository;
+    private ProjectEventBus projectEventBus;
+
+    @Value("${project-updates.stats-users:}")
+    private List<String> statsUsers;
 
     @GetMapping("/project-update")
-    public Flux<ServerSentEvent<Project>> projectUpdate() {
-        return Flux.interval(Duration.ofSeconds(2))
-                .flatMap(tick -> Flux.defer(() -> Flux.fromIterable(projectRepository.findAll())))
-                .map(project -> ServerSentEvent.<Project>builder()
-                        .id(String.valueOf(Instant.now().toEpochMilli()))
+    public Flux<ServerSentEvent<ProjectUpdateEvent>> projectUpdate(@AuthenticationPrincipal User user,
+                                                                  @RequestParam(required = false) List<Long> projectIds) {
+        Flux<ServerSentEvent<ProjectUpdateEvent>> updates = projectEventBus.subscribe(user.getUserId(), projectIds)
+                .map(event -> ServerSentEvent.<ProjectUpdateEvent>builder()
+                        .id(String.valueOf(event.getVersion()))
                         .event("project-update")
-                        .data(project)
+                        .data(event)
                         .build());
+        // comment lines keep proxies from closing idle connections and cost the client nothing to parse
+        Flux<ServerSentEvent<ProjectUpdateEvent>> heartbeats = projectEventBus.heartbeats()
+                .map(tick -> ServerSentEvent.<ProjectUpdateEvent>builder().comment("heartbeat").build());
+        return Flux.merge(updates, heartbeats);
+    }
+
+    @GetMapping("/project-update/stats")
+    public ResponseEntity<ApiResponse<ProjectUpdateStats>> stats(@AuthenticationPrincipal User user) {
+        // node-wide figures, only for the operators listed in project-updates.stats-users
+        if (user == null || !statsUsers.contains(user.getEmail())) {
+            throw new ForbiddenException("Update stream stats are restricted to operators");
+        }
+        return ResponseEntity.ok(ApiResponse.success(projectEventBus.stats(), "Update stream stats fetched successfully"));
     }
 
 }
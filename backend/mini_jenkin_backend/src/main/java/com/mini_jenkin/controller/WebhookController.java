@@ -1,26 +1,62 @@
 package com.mini_jenkin.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.payload.ApiResponse;
 import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@Slf4j
 @RequestMapping("/webhook")
 public class WebhookController {
 
+    private static final String BRANCH_REF_PREFIX = "refs/heads/";
+
     @Autowired
     private ProjectExecutionServiceInterface projectExecutionService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/github/{projectId}")
-    public void handleGithubWebhook(@PathVariable Long projectId, @RequestBody String payload,
-                                    @RequestHeader("X-GitHub-Event") String eventType) {
-        if("push".equalsIgnoreCase(eventType)) {
-            try {
-                projectExecutionService.executeProject(projectId);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    public ResponseEntity<ApiResponse<Build>> handleGithubWebhook(@PathVariable Long projectId, @RequestBody String payload,
+                                                                  @RequestHeader("X-GitHub-Event") String eventType) {
+        if(!"push".equalsIgnoreCase(eventType)) {
+            return ResponseEntity.ok(ApiResponse.success(null, "Event ignored: " + eventType));
+        }
+
+        String branch = null;
+        String commitSha = null;
+        try {
+            JsonNode push = objectMapper.readTree(payload);
+            if (push.path("deleted").asBoolean(false)) {
+                return ResponseEntity.ok(ApiResponse.success(null, "Branch deletion ignored"));
             }
+            String ref = push.path("ref").asText(null);
+            if (ref != null && !ref.startsWith(BRANCH_REF_PREFIX)) {
+                // tags and other refs would check out their commit under the configured branch
+                return ResponseEntity.ok(ApiResponse.success(null, "Push to " + ref + " ignored"));
+            }
+            if (ref != null) {
+                branch = ref.substring(BRANCH_REF_PREFIX.length());
+            }
+            commitSha = push.path("after").asText(null);
+        } catch (Exception e) {
+            log.warn("Unreadable push payload for projectId {}: {}", projectId, e.getMessage());
+        }
+
+        Build build = projectExecutionService.executeWebhookPush(projectId, branch, commitSha);
+        if (build == null) {
+            return ResponseEntity.ok(ApiResponse.success(null, "Push to branch " + branch + " ignored, the project builds another branch"));
         }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success(build, "Build queued"));
     }
 
 }
@@ -0,0 +1,47 @@
+package com.mini_jenkin.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity(name = "build")
+@Table(indexes = {
+        @Index(name = "idx_build_project_id", columnList = "projectId, id"),
+        @Index(name = "idx_build_status", columnList = "status"),
+        @Index(name = "idx_build_project_number", columnList = "projectId, buildNumber")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Build {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long projectId;
+    // sequential per project, starting at 1
+    private Integer buildNumber;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private BuildStatus status;
+    @Enumerated(EnumType.STRING)
+    private BuildTrigger trigger;
+    private Integer priority;
+    private String branch;
+    private String commitSha;
+    // number of later pushes folded into this build while it waited in the queue
+    private Integer coalescedCount;
+    private LocalDateTime queuedAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    // time spent waiting in the queue and running, in milliseconds
+    private Long queueMillis;
+    private Long durationMillis;
+    @Column(length = 2000)
+    private String errorMessage;
+}
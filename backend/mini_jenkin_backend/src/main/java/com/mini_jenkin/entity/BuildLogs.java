@@ -9,6 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity(name = "build_logs")
+@Table(indexes = @Index(name = "idx_build_logs_project_time", columnList = "projectId, timestamp"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,6 +22,11 @@ public class BuildLogs {
     @Enumerated(EnumType.STRING)
     private BuildStatus status;
     private Long projectId;
+    private Long buildId;
+    private Integer buildNumber;
+    private String commitSha;
+    private Long durationMillis;
+    // durationMillis formatted for display
     private String executionTime;
 }
 
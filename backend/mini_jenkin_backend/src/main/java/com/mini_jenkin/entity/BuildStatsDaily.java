@@ -0,0 +1,35 @@
+package com.mini_jenkin.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// per project and day totals of finished builds, updated as each build finishes
+@Entity(name = "build_stats_daily")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_build_stats_daily_project_day", columnNames = {"projectId", "day"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuildStatsDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long projectId;
+    @Column(nullable = false)
+    private LocalDate day;
+    private long builds;
+    private long successes;
+    private long failures;
+    private long cancelled;
+    private long totalDurationMillis;
+    private long totalQueueMillis;
+    // serialized DurationSketch of build run times and of queue waits
+    private byte[] durationSketch;
+    private byte[] queueSketch;
+}
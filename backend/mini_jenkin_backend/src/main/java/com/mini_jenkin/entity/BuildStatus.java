@@ -1,5 +1,5 @@
 package com.mini_jenkin.entity;
 
 public enum BuildStatus {
-    SUCCESS, FAILURE
+    QUEUED, RUNNING, SUCCESS, FAILURE, CANCELLED
 }
@@ -0,0 +1,16 @@
+package com.mini_jenkin.entity;
+
+public enum BuildTrigger {
+    MANUAL(0), WEBHOOK(1), SCHEDULED(2);
+
+    // lower value is dispatched first
+    private final int priority;
+
+    BuildTrigger(int priority) {
+        this.priority = priority;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+}
@@ -0,0 +1,10 @@
+package com.mini_jenkin.entity;
+
+public enum ConcurrencyPolicy {
+    // one build of the project at a time, later ones wait in the queue
+    QUEUE,
+    // a newer build cancels the running and waiting builds of the project
+    CANCEL_SUPERSEDED,
+    // builds run side by side, each in its own workspace
+    PARALLEL
+}
@@ -0,0 +1,9 @@
+package com.mini_jenkin.entity;
+
+public enum NotificationMode {
+    // one mail per finished build
+    EACH_BUILD,
+    // builds collected and sent together every build.notifications.digest-minutes
+    DIGEST,
+    OFF
+}
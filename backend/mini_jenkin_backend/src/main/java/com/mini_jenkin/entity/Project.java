@@ -28,6 +28,10 @@ public class Project {
     private String lastRun;
     @Column(nullable = true)
     private String lastBuildTime;
+    @Column(nullable = true)
+    private Long lastBuildId;
+    @Column(nullable = true)
+    private Long lastBuildDurationMillis;
     @Column(nullable = false)
     private String projectName;
     @OneToOne(mappedBy = "project", cascade = CascadeType.ALL, fetch = FetchType.EAGER)
@@ -23,6 +23,25 @@ public class ProjectConfig {
     private String branch = "main";
     @Column(nullable = true, length = 2000)
     private String environmentVariables;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = true)
+    private ConcurrencyPolicy concurrencyPolicy;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = true)
+    private NotificationMode notificationMode;
+    // log retention, null falls back to build.logs.retention defaults
+    @Column(nullable = true)
+    private Integer logRetentionBuilds;
+    @Column(nullable = true)
+    private Integer logRetentionDays;
+    // checkout mode, null falls back to build.git defaults; a depth of 0 fetches full history
+    @Column(nullable = true)
+    private Integer cloneDepth;
+    @Column(nullable = true)
+    private Boolean singleBranch;
+    // blob-less clone, file contents are fetched on checkout; needs the git executable
+    @Column(nullable = true)
+    private Boolean partialClone;
     @OneToOne( fetch = FetchType.LAZY)
     @JsonIgnore
     @JoinColumn(nullable = false, name = "project_id")
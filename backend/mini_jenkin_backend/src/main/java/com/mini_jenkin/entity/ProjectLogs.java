@@ -9,13 +9,16 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity(name = "project_logs")
+@Table(indexes = @Index(name = "idx_project_logs_project_time", columnList = "projectId, logTime"))
 @Data
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 public class ProjectLogs {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    // pooled sequence so a batch of inserts needs one sequence call per 50 rows and can be sent as one JDBC batch
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "project_logs_seq")
+    @SequenceGenerator(name = "project_logs_seq", sequenceName = "project_logs_seq", allocationSize = 50)
     private int id;
     private Long projectId;
     @Column(columnDefinition = "TEXT")
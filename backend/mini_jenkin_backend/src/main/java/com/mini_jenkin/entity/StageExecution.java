@@ -0,0 +1,34 @@
+package com.mini_jenkin.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// one pipeline stage as it ran in a build
+@Entity(name = "stage_execution")
+@Table(indexes = @Index(name = "idx_stage_execution_build", columnList = "buildId, stageIndex"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageExecution {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long buildId;
+    @Column(nullable = false)
+    private Long projectId;
+    private Integer stageIndex;
+    private String stageName;
+    @Enumerated(EnumType.STRING)
+    private BuildStatus status;
+    // null when the process never started or was killed
+    private Integer exitCode;
+    private LocalDateTime startedAt;
+    private Long durationMillis;
+}
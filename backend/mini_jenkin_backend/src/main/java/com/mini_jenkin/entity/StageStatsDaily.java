@@ -0,0 +1,33 @@
+package com.mini_jenkin.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// per project, day and stage name totals of stage runs
+@Entity(name = "stage_stats_daily")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_stage_stats_daily_project_day_stage", columnNames = {"projectId", "day", "stageName"}))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageStatsDaily {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Column(nullable = false)
+    private Long projectId;
+    @Column(nullable = false)
+    private LocalDate day;
+    @Column(nullable = false)
+    private String stageName;
+    private long runs;
+    private long failures;
+    private long totalDurationMillis;
+    // serialized DurationSketch of the stage's run times
+    private byte[] durationSketch;
+}
@@ -0,0 +1,7 @@
+package com.mini_jenkin.exception;
+
+public class BuildCancelledException extends RuntimeException {
+    public BuildCancelledException(String message) {
+        super(message);
+    }
+}
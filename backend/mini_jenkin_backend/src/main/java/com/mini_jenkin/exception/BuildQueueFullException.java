@@ -0,0 +1,7 @@
+package com.mini_jenkin.exception;
+
+public class BuildQueueFullException extends RuntimeException {
+    public BuildQueueFullException(String message) {
+        super(message);
+    }
+}
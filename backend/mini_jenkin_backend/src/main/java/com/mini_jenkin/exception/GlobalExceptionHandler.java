@@ -54,4 +54,40 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
     }
 
+    @ExceptionHandler(BuildQueueFullException.class)
+    public ResponseEntity<?> buildQueueFullExceptionHandler(BuildQueueFullException exception) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .message("Build queue is full")
+                .detail(exception.getLocalizedMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    @ExceptionHandler(SubscriptionLimitException.class)
+    public ResponseEntity<?> subscriptionLimitExceptionHandler(SubscriptionLimitException exception) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .message("Too many update subscriptions")
+                .detail(exception.getLocalizedMessage())
+                .build();
+        return ResponseEntity.status(exception.isPerUser() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<?> invalidCursorExceptionHandler(InvalidCursorException exception) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .message("Invalid page cursor")
+                .detail(exception.getLocalizedMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errorResponse);
+    }
+
+    @ExceptionHandler(ForbiddenException.class)
+    public ResponseEntity<?> forbiddenExceptionHandler(ForbiddenException exception) {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .message("Access denied")
+                .detail(exception.getLocalizedMessage())
+                .build();
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(errorResponse);
+    }
+
 }
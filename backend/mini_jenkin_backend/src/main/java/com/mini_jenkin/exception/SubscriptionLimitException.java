@@ -0,0 +1,19 @@
+package com.mini_jenkin.exception;
+
+public class SubscriptionLimitException extends RuntimeException {
+    // the user's own limit rather than the node's, answered with 429 instead of 503
+    private final boolean perUser;
+
+    public SubscriptionLimitException(String message) {
+        this(message, false);
+    }
+
+    public SubscriptionLimitException(String message, boolean perUser) {
+        super(message);
+        this.perUser = perUser;
+    }
+
+    public boolean isPerUser() {
+        return perUser;
+    }
+}
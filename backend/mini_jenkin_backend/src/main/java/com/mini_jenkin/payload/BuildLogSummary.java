@@ -0,0 +1,18 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.BuildStatus;
+
+import java.time.LocalDateTime;
+
+// build history row as listed, without loading the entity
+public interface BuildLogSummary {
+    int getId();
+    Long getProjectId();
+    Long getBuildId();
+    Integer getBuildNumber();
+    String getCommitSha();
+    LocalDateTime getTimestamp();
+    BuildStatus getStatus();
+    Long getDurationMillis();
+    String getExecutionTime();
+}
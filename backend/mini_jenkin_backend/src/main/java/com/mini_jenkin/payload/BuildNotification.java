@@ -0,0 +1,28 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.entity.NotificationMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuildNotification {
+    private Long buildId;
+    private Long projectId;
+    private String projectName;
+    private String userId;
+    private BuildStatus status;
+    private long durationMillis;
+    private LocalDateTime finishedAt;
+    private NotificationMode mode;
+    // last lines of build output, already bounded
+    private List<String> tail;
+}
@@ -0,0 +1,23 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.BuildTrigger;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuildQueuePosition {
+    private Long buildId;
+    private Long projectId;
+    private BuildTrigger trigger;
+    private int position;
+    private LocalDateTime queuedAt;
+    private long waitedMillis;
+    private long estimatedWaitMillis;
+}
@@ -0,0 +1,24 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BuildTraceData {
+    private Long buildId;
+    private Long projectId;
+    private Integer buildNumber;
+    private String status;
+    private String commitSha;
+    // spans left out once the per-build cap was reached
+    private int droppedSpans;
+    private List<TraceSpan> spans;
+    private List<ProcessSample> samples;
+}
@@ -0,0 +1,34 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    // pass back as cursor to get the next (older) page, null on the last page
+    private String nextCursor;
+    private boolean hasMore;
+
+    /**
+     * Builds a page from a query that fetched one row more than the page size, the extra row only
+     * tells whether another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, HistoryCursor> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPage.<T>builder()
+                .items(items)
+                .hasMore(hasMore)
+                .nextCursor(hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null)
+                .build();
+    }
+}
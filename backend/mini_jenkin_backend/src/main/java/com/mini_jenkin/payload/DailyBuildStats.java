@@ -0,0 +1,23 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBuildStats {
+    private LocalDate day;
+    private long builds;
+    private long successes;
+    private long failures;
+    private long cancelled;
+    private Double successRate;
+    private DurationPercentiles duration;
+    private DurationPercentiles queueWait;
+}
@@ -0,0 +1,26 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// progress fields are written by the cleanup thread while requests read them
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeletionJob {
+    private String jobId;
+    private Long projectId;
+    private DeletionJobType type;
+    private volatile DeletionJobStatus status;
+    private volatile long rowsDeleted;
+    private volatile long buildLogsDeleted;
+    private LocalDateTime submittedAt;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+}
@@ -0,0 +1,5 @@
+package com.mini_jenkin.payload;
+
+public enum DeletionJobStatus {
+    PENDING, RUNNING, COMPLETED, FAILED
+}
@@ -0,0 +1,18 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// milliseconds; null when nothing was measured
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DurationPercentiles {
+    private Long p50;
+    private Long p95;
+    private Long p99;
+    private Long mean;
+}
@@ -0,0 +1,33 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Position in a history listing ordered newest first: the time and id of the last item returned.
+ * Clients treat the encoded form as opaque.
+ */
+public record HistoryCursor(LocalDateTime time, int id) {
+
+    // starts a listing before everything that can be stored
+    public static final HistoryCursor START = new HistoryCursor(LocalDateTime.of(9999, 1, 1, 0, 0), Integer.MAX_VALUE);
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((time + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return START;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new HistoryCursor(LocalDateTime.parse(parts[0]), Integer.parseInt(parts[1]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Malformed cursor: " + cursor);
+        }
+    }
+}
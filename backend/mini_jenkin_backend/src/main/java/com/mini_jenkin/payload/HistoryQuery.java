@@ -0,0 +1,39 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.BuildStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistoryQuery {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private String cursor;
+    private Integer limit;
+    // build history only
+    private BuildStatus status;
+    // inclusive lower and exclusive upper bound on the entry time
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    public int pageSize() {
+        return limit == null || limit <= 0 ? DEFAULT_LIMIT : Math.min(limit, MAX_LIMIT);
+    }
+
+    public LocalDateTime fromOrEarliest() {
+        return from != null ? from : EARLIEST;
+    }
+
+    public LocalDateTime toOrLatest() {
+        return to != null ? to : HistoryCursor.START.time();
+    }
+}
@@ -0,0 +1,21 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LogRange {
+    private Long buildId;
+    // line number of the first line in this range
+    private long offset;
+    private long nextOffset;
+    private long totalLines;
+    private List<String> lines;
+}
@@ -0,0 +1,20 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// resource use of a stage's process tree at one point in time
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessSample {
+    private long timeMicros;
+    private long pid;
+    private int processes;
+    // share of one CPU since the previous sample, null for the first sample of a process
+    private Double cpuPercent;
+    private long rssBytes;
+}
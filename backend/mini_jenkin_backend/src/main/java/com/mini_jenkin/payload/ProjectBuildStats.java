@@ -0,0 +1,30 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectBuildStats {
+    private Long projectId;
+    private LocalDate from;
+    private LocalDate to;
+    private long builds;
+    private long successes;
+    private long failures;
+    private long cancelled;
+    // successes over builds that ran to an outcome, cancelled builds left out
+    private Double successRate;
+    private double buildsPerDay;
+    private DurationPercentiles duration;
+    private DurationPercentiles queueWait;
+    private List<DailyBuildStats> daily;
+    private List<StageDurationStats> stages;
+}
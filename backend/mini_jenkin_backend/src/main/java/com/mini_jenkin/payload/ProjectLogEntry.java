@@ -0,0 +1,10 @@
+package com.mini_jenkin.payload;
+
+import java.time.LocalDateTime;
+
+// project log row as listed, without loading the entity
+public interface ProjectLogEntry {
+    int getId();
+    LocalDateTime getLogTime();
+    String getLog();
+}
@@ -0,0 +1,26 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.BuildStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectUpdateEvent {
+    // increases with every published event, clients can drop anything older than what they have
+    private long version;
+    private ProjectUpdateType type;
+    private Long projectId;
+    private String userId;
+    private String projectName;
+    private ProjectStatus projectStatus;
+    private Long buildId;
+    private BuildStatus buildStatus;
+    private LocalDateTime timestamp;
+}
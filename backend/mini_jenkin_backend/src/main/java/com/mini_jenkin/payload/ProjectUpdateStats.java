@@ -0,0 +1,21 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProjectUpdateStats {
+    private int connections;
+    private int maxConnections;
+    private int subscribedUsers;
+    private long publishedEvents;
+    private long deliveredEvents;
+    private long droppedEvents;
+    private long rejectedConnections;
+    private long version;
+}
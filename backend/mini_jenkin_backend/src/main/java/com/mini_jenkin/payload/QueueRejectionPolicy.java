@@ -0,0 +1,8 @@
+package com.mini_jenkin.payload;
+
+public enum QueueRejectionPolicy {
+    // refuse the incoming build
+    REJECT,
+    // evict the newest build of the lowest priority lane if the incoming one outranks it
+    DROP_LOWEST
+}
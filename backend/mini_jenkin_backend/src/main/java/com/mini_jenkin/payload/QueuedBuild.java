@@ -0,0 +1,41 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildTrigger;
+import com.mini_jenkin.entity.ConcurrencyPolicy;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueuedBuild {
+    private Long buildId;
+    private Long projectId;
+    private BuildTrigger trigger;
+    private int priority;
+    private LocalDateTime queuedAt;
+    private String branch;
+    private String commitSha;
+    private ConcurrencyPolicy concurrencyPolicy;
+    // epoch millis before which a worker must not pick the build up (webhook debounce)
+    private long notBeforeMillis;
+
+    public static QueuedBuild from(Build build) {
+        BuildTrigger trigger = build.getTrigger() != null ? build.getTrigger() : BuildTrigger.MANUAL;
+        return QueuedBuild.builder()
+                .buildId(build.getId())
+                .projectId(build.getProjectId())
+                .trigger(trigger)
+                .priority(build.getPriority() != null ? build.getPriority() : trigger.getPriority())
+                .queuedAt(build.getQueuedAt())
+                .branch(build.getBranch())
+                .commitSha(build.getCommitSha())
+                .build();
+    }
+}
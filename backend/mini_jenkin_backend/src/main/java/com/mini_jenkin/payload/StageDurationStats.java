@@ -0,0 +1,17 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StageDurationStats {
+    private String stageName;
+    private long runs;
+    private long failures;
+    private DurationPercentiles duration;
+}
@@ -0,0 +1,8 @@
+package com.mini_jenkin.payload;
+
+public enum TraceFormat {
+    // Chrome Trace Event JSON, opens in Perfetto and chrome://tracing
+    CHROME,
+    // OpenTelemetry OTLP/JSON, as written by the collector's file exporter
+    OTLP
+}
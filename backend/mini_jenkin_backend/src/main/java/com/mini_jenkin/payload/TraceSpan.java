@@ -0,0 +1,26 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// times in microseconds since the epoch
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TraceSpan {
+    private int id;
+    // null for the build's root span
+    private Integer parentId;
+    private String name;
+    private String category;
+    // row the span is drawn on: 1 for the pipeline, 2 for output writes
+    private int lane;
+    private long startMicros;
+    private long durationMicros;
+    private Map<String, Object> attributes;
+}
@@ -0,0 +1,24 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkspaceUsage {
+    private Long projectId;
+    // pristine checkout plus idle build workspaces, as last measured
+    private long totalBytes;
+    private long pristineBytes;
+    private int idleWorkspaces;
+    private long idleBytes;
+    // workspaces of running builds, measured once they are released
+    private int activeWorkspaces;
+    private LocalDateTime lastUsedAt;
+}
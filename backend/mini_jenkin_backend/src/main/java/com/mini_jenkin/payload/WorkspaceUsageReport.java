@@ -0,0 +1,26 @@
+package com.mini_jenkin.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkspaceUsageReport {
+    // 0 when no budget is enforced
+    private long budgetBytes;
+    private long highWaterBytes;
+    private long lowWaterBytes;
+    private long usedBytes;
+    // checkouts from before per-build workspaces, removed once stale
+    private long legacyBytes;
+    private long evictedWorkspaces;
+    private LocalDateTime lastCollectedAt;
+    private List<WorkspaceUsage> projects;
+}
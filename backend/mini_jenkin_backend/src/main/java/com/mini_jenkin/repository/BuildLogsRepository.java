@@ -1,12 +1,35 @@
 package com.mini_jenkin.repository;
 
 import com.mini_jenkin.entity.BuildLogs;
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.payload.BuildLogSummary;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface BuildLogsRepository extends JpaRepository<BuildLogs, Integer> {
-    public List<BuildLogs> findAllByProjectId(Long projectId);
+    // keyset page, newest first: everything strictly after (cursorTime, cursorId) in that order
+    @Query("SELECT b.id AS id, b.projectId AS projectId, b.buildId AS buildId, b.buildNumber AS buildNumber, " +
+            "b.commitSha AS commitSha, b.timestamp AS timestamp, b.status AS status, b.durationMillis AS durationMillis, b.executionTime AS executionTime " +
+            "FROM build_logs b WHERE b.projectId = :projectId AND b.timestamp >= :from AND b.timestamp < :to " +
+            "AND (:status IS NULL OR b.status = :status) " +
+            "AND (b.timestamp < :cursorTime OR (b.timestamp = :cursorTime AND b.id < :cursorId)) " +
+            "ORDER BY b.timestamp DESC, b.id DESC")
+    List<BuildLogSummary> findHistoryPage(@Param("projectId") Long projectId, @Param("status") BuildStatus status,
+                                          @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                          @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") int cursorId,
+                                          Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM build_logs WHERE id IN (SELECT id FROM build_logs WHERE project_id = :projectId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByProjectId(@Param("projectId") Long projectId, @Param("limit") int limit);
 }
@@ -0,0 +1,68 @@
+package com.mini_jenkin.repository;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildStatus;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BuildRepository extends JpaRepository<Build, Long> {
+
+    List<Build> findAllByStatus(BuildStatus status);
+
+    List<Build> findAllByStatusOrderByIdAsc(BuildStatus status);
+
+    List<Build> findAllByProjectIdAndFinishedAtIsNotNullOrderByIdDesc(Long projectId);
+
+    List<Build> findAllByProjectIdAndStatusIn(Long projectId, List<BuildStatus> statuses);
+
+    @Query(value = "SELECT id FROM build WHERE project_id = :projectId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findIdChunkByProjectId(@Param("projectId") Long projectId, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.commitSha = :commitSha, b.coalescedCount = COALESCE(b.coalescedCount, 0) + 1 " +
+            "WHERE b.id = :id AND b.status = com.mini_jenkin.entity.BuildStatus.QUEUED")
+    int coalescePush(@Param("id") Long id, @Param("commitSha") String commitSha);
+
+    @Query("SELECT COALESCE(MAX(b.buildNumber), 0) FROM build b WHERE b.projectId = :projectId")
+    int findLastBuildNumber(@Param("projectId") Long projectId);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.status = :status, b.startedAt = :startedAt, b.queueMillis = :queueMillis " +
+            "WHERE b.id = :id AND b.status = com.mini_jenkin.entity.BuildStatus.QUEUED")
+    int markStarted(@Param("id") Long id, @Param("status") BuildStatus status, @Param("startedAt") LocalDateTime startedAt, @Param("queueMillis") Long queueMillis);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.status = :status, b.finishedAt = :finishedAt, b.errorMessage = :errorMessage WHERE b.id = :id")
+    void markFinished(@Param("id") Long id, @Param("status") BuildStatus status, @Param("finishedAt") LocalDateTime finishedAt, @Param("errorMessage") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.status = com.mini_jenkin.entity.BuildStatus.CANCELLED, b.finishedAt = :finishedAt, b.errorMessage = :errorMessage " +
+            "WHERE b.id = :id AND b.status = com.mini_jenkin.entity.BuildStatus.QUEUED")
+    int cancelQueued(@Param("id") Long id, @Param("finishedAt") LocalDateTime finishedAt, @Param("errorMessage") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.status = com.mini_jenkin.entity.BuildStatus.CANCELLED, b.finishedAt = :finishedAt, b.errorMessage = :errorMessage " +
+            "WHERE b.projectId = :projectId AND COALESCE(b.branch, '') = :branch AND b.id < :buildId AND b.status = com.mini_jenkin.entity.BuildStatus.QUEUED")
+    int cancelQueuedBefore(@Param("projectId") Long projectId, @Param("branch") String branch, @Param("buildId") Long buildId,
+                           @Param("finishedAt") LocalDateTime finishedAt, @Param("errorMessage") String errorMessage);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE build b SET b.status = :status, b.finishedAt = :finishedAt, b.errorMessage = :errorMessage, b.durationMillis = :durationMillis, " +
+            "b.commitSha = COALESCE(:commitSha, b.commitSha) WHERE b.id = :id")
+    void markCompleted(@Param("id") Long id, @Param("status") BuildStatus status, @Param("finishedAt") LocalDateTime finishedAt,
+                       @Param("errorMessage") String errorMessage, @Param("durationMillis") Long durationMillis, @Param("commitSha") String commitSha);
+}
@@ -2,9 +2,18 @@ package com.mini_jenkin.repository;
 
 import com.mini_jenkin.entity.ProjectConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProjectConfigRepository extends JpaRepository<ProjectConfig, Long> {
 
+    @Query("SELECT c.githubUrl FROM ProjectConfig c WHERE c.project.projectId = :projectId")
+    String findGithubUrlByProjectId(@Param("projectId") Long projectId);
+
+    @Query("SELECT DISTINCT c.githubUrl FROM ProjectConfig c WHERE c.githubUrl IS NOT NULL")
+    List<String> findAllGithubUrls();
 }
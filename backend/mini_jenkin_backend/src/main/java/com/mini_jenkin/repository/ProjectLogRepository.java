@@ -1,13 +1,43 @@
 package com.mini_jenkin.repository;
 import java.util.*;
 import com.mini_jenkin.entity.ProjectLogs;
+import com.mini_jenkin.payload.ProjectLogEntry;
+import jakarta.transaction.Transactional;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface ProjectLogRepository extends JpaRepository<ProjectLogs, Long> {
-    List<ProjectLogs> findByProjectId(Long projectId);
+    // keyset page, newest first: everything strictly after (cursorTime, cursorId) in that order
+    @Query("SELECT l.id AS id, l.logTime AS logTime, l.log AS log FROM project_logs l " +
+            "WHERE l.projectId = :projectId AND l.logTime >= :from AND l.logTime < :to " +
+            "AND (l.logTime < :cursorTime OR (l.logTime = :cursorTime AND l.id < :cursorId)) " +
+            "ORDER BY l.logTime DESC, l.id DESC")
+    List<ProjectLogEntry> findHistoryPage(@Param("projectId") Long projectId,
+                                          @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+                                          @Param("cursorTime") LocalDateTime cursorTime, @Param("cursorId") int cursorId,
+                                          Limit limit);
     Optional<ProjectLogs> findByIdAndProjectId(Long id, Long projectId);
-    void deleteByProjectId(Long projectId);
     Optional<ProjectLogs> findTopByProjectIdOrderByLogTimeDesc(Long projectId);
+
+    // bounded like deleteChunkByProjectId; the time range is repeated outside the subquery so months outside it are pruned
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM project_logs WHERE project_id = :projectId AND log_time >= :from AND log_time < :cutoff " +
+            "AND (id, log_time) IN (SELECT id, log_time FROM project_logs WHERE project_id = :projectId AND log_time >= :from AND log_time < :cutoff LIMIT :limit)",
+            nativeQuery = true)
+    int deleteChunkOlderThan(@Param("projectId") Long projectId, @Param("from") LocalDateTime from, @Param("cutoff") LocalDateTime cutoff,
+                             @Param("limit") int limit);
+
+    // bounded so each delete is a short transaction, callers repeat until it returns 0
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM project_logs WHERE id IN (SELECT id FROM project_logs WHERE project_id = :projectId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByProjectId(@Param("projectId") Long projectId, @Param("limit") int limit);
 }
@@ -22,4 +22,10 @@ public interface ProjectRepository extends JpaRepository<Project, Long> {
     @Query("UPDATE project p SET p.projectStatus = :projectStatus WHERE p.projectId = :projectId")
     void setStatusToRunning(@Param("projectStatus") ProjectStatus projectStatus, @Param("projectId") Long projectId);
 
+    @Transactional
+    @Modifying
+    @Query("UPDATE project p SET p.lastRun = :lastRun, p.lastBuildTime = :lastBuildTime, p.lastBuildId = :buildId, p.lastBuildDurationMillis = :durationMillis WHERE p.projectId = :projectId")
+    void recordLastBuild(@Param("projectId") Long projectId, @Param("buildId") Long buildId, @Param("lastRun") String lastRun,
+                         @Param("lastBuildTime") String lastBuildTime, @Param("durationMillis") Long durationMillis);
+
 }
@@ -0,0 +1,22 @@
+package com.mini_jenkin.repository;
+
+import com.mini_jenkin.entity.StageExecution;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface StageExecutionRepository extends JpaRepository<StageExecution, Long> {
+
+    List<StageExecution> findAllByBuildIdOrderByStageIndexAsc(Long buildId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM stage_execution WHERE id IN (SELECT id FROM stage_execution WHERE project_id = :projectId LIMIT :limit)", nativeQuery = true)
+    int deleteChunkByProjectId(@Param("projectId") Long projectId, @Param("limit") int limit);
+}
@@ -0,0 +1,26 @@
+package com.mini_jenkin.repository;
+
+import com.mini_jenkin.entity.StageStatsDaily;
+import jakarta.transaction.Transactional;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StageStatsDailyRepository extends JpaRepository<StageStatsDaily, Long> {
+
+    Optional<StageStatsDaily> findByProjectIdAndDayAndStageName(Long projectId, LocalDate day, String stageName);
+
+    List<StageStatsDaily> findAllByProjectIdAndDayBetweenOrderByDayAsc(Long projectId, LocalDate from, LocalDate to);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM stage_stats_daily s WHERE s.projectId = :projectId")
+    int deleteAllByProjectId(@Param("projectId") Long projectId);
+}
@@ -1,5 +1,6 @@
 package com.mini_jenkin.scheduler;
 
+import com.mini_jenkin.entity.BuildTrigger;
 import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
 import lombok.extern.slf4j.Slf4j;
 import org.quartz.Job;
@@ -20,7 +21,7 @@ public class ExecuteScheduledJob implements Job {
         Long projectId = (Long) jobExecutionContext.getMergedJobDataMap().get("projectId");
         log.info("Scheduled execution for projectId : {}" , projectId);
         try {
-            projectExecutionServiceInterface.executeProject(projectId);
+            projectExecutionServiceInterface.executeProject(projectId, BuildTrigger.SCHEDULED);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -0,0 +1,234 @@
+package com.mini_jenkin.service.cleanup;
+
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.exception.ResourceNotFoundException;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.DeletionJobStatus;
+import com.mini_jenkin.payload.DeletionJobType;
+import com.mini_jenkin.payload.ProjectUpdateType;
+import com.mini_jenkin.repository.BuildLogsRepository;
+import com.mini_jenkin.repository.BuildRepository;
+import com.mini_jenkin.repository.ProjectConfigRepository;
+import com.mini_jenkin.repository.ProjectLogRepository;
+import com.mini_jenkin.repository.ProjectRepository;
+import com.mini_jenkin.repository.StageExecutionRepository;
+import com.mini_jenkin.service.events.ProjectEventBus;
+import com.mini_jenkin.service.logstore.BuildLogStore;
+import com.mini_jenkin.service.logstore.LogCompactor;
+import com.mini_jenkin.service.logstore.ProjectLogWriter;
+import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
+import com.mini_jenkin.service.stats.BuildStatsRollup;
+import com.mini_jenkin.service.workspace.RepositoryMirrorCache;
+import com.mini_jenkin.service.workspace.WorkspaceManager;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.IntSupplier;
+
+/**
+ * Deletes a project's data in the background, including its workspaces on disk. Large tables are emptied with set-based deletes of
+ * at most chunk-size rows each, so no single statement holds locks for long and nothing is loaded
+ * into the persistence context. Progress is tracked in a job that clients poll.
+ */
+@Component
+@Slf4j
+public class ProjectCleanupService {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+    @Autowired
+    private BuildRepository buildRepository;
+    @Autowired
+    private BuildLogsRepository buildLogsRepository;
+    @Autowired
+    private ProjectLogRepository projectLogRepository;
+    @Autowired
+    private ProjectConfigRepository projectConfigRepository;
+    @Autowired
+    private StageExecutionRepository stageExecutionRepository;
+    @Autowired
+    private BuildStatsRollup buildStatsRollup;
+    @Autowired
+    private ProjectLogWriter projectLogWriter;
+    @Autowired
+    private BuildLogStore buildLogStore;
+    @Autowired
+    private LogCompactor logCompactor;
+    @Autowired
+    private ProjectExecutionServiceInterface projectExecutionService;
+    @Autowired
+    private ProjectEventBus projectEventBus;
+    @Autowired
+    private WorkspaceManager workspaceManager;
+    @Autowired
+    private RepositoryMirrorCache repositoryMirrorCache;
+    @Autowired
+    private Scheduler scheduler;
+
+    @Autowired
+    @Qualifier("cleanupExecutor")
+    private ExecutorService cleanupExecutor;
+
+    @Value("${cleanup.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${cleanup.build-stop-timeout-seconds:300}")
+    private long buildStopTimeoutSeconds;
+
+    @Value("${cleanup.job-ttl-minutes:60}")
+    private long jobTtlMinutes;
+
+    private final Map<String, DeletionJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Starts deleting a project together with its builds, build history, logs and scheduled runs.
+     * A deletion already in progress for the project is returned instead of starting another.
+     */
+    public DeletionJob submitProjectDeletion(Long projectId) {
+        Project project = projectRepository.findById(projectId).orElseThrow(() -> new ResourceNotFoundException("PROJECT WITH ID : " + projectId + " NOT FOUND"));
+        return submit(projectId, DeletionJobType.PROJECT, job -> deleteProject(project, job));
+    }
+
+    /**
+     * Starts removing a project's log rows and stored build logs.
+     */
+    public DeletionJob submitLogPurge(Long projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new ResourceNotFoundException("PROJECT WITH ID : " + projectId + " NOT FOUND");
+        }
+        return submit(projectId, DeletionJobType.LOGS, this::purgeLogs);
+    }
+
+    public DeletionJob getJob(String jobId) {
+        DeletionJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("No deletion job with id : " + jobId);
+        }
+        return job;
+    }
+
+    private DeletionJob submit(Long projectId, DeletionJobType type, JobBody body) {
+        evictFinishedJobs();
+        DeletionJob job = DeletionJob.builder()
+                .jobId(UUID.randomUUID().toString())
+                .projectId(projectId)
+                .type(type)
+                .status(DeletionJobStatus.PENDING)
+                .submittedAt(LocalDateTime.now())
+                .build();
+        synchronized (jobs) {
+            for (DeletionJob existing : jobs.values()) {
+                if (existing.getProjectId().equals(projectId) && existing.getType() == type && isActive(existing)) {
+                    return existing;
+                }
+            }
+            jobs.put(job.getJobId(), job);
+        }
+        cleanupExecutor.submit(() -> run(job, body));
+        return job;
+    }
+
+    private void run(DeletionJob job, JobBody body) {
+        job.setStatus(DeletionJobStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        try {
+            body.run(job);
+            job.setStatus(DeletionJobStatus.COMPLETED);
+            log.info("{} deletion for project {} finished: {} rows, {} build logs", job.getType(), job.getProjectId(), job.getRowsDeleted(), job.getBuildLogsDeleted());
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            job.setStatus(DeletionJobStatus.FAILED);
+            log.error("{} deletion for project {} failed: {}", job.getType(), job.getProjectId(), e.getMessage(), e);
+        } finally {
+            job.setFinishedAt(LocalDateTime.now());
+        }
+    }
+
+    private void purgeLogs(DeletionJob job) {
+        job.setBuildLogsDeleted(logCompactor.purgeBuildLogs(job.getProjectId()));
+        // rows still queued for the project would otherwise be inserted after the delete
+        projectLogWriter.flush();
+        deleteInChunks(job, () -> projectLogRepository.deleteChunkByProjectId(job.getProjectId(), chunkSize));
+    }
+
+    private void deleteProject(Project project, DeletionJob job) throws Exception {
+        Long projectId = project.getProjectId();
+        unscheduleRuns(projectId);
+        // running builds keep writing rows and using their workspace until they have stopped
+        projectExecutionService.closeProject(projectId);
+        if (!projectExecutionService.awaitProjectBuilds(projectId, buildStopTimeoutSeconds * 1000)) {
+            projectExecutionService.reopenProject(projectId);
+            throw new GeneralException("Builds of project " + projectId + " did not stop within " + buildStopTimeoutSeconds + "s, project not deleted");
+        }
+
+        projectLogWriter.flush();
+        deleteInChunks(job, () -> projectLogRepository.deleteChunkByProjectId(projectId, chunkSize));
+        deleteInChunks(job, () -> buildLogsRepository.deleteChunkByProjectId(projectId, chunkSize));
+        deleteInChunks(job, () -> stageExecutionRepository.deleteChunkByProjectId(projectId, chunkSize));
+        // at most one row per day and stage, small enough for a single delete
+        buildStatsRollup.deleteProjectStats(projectId);
+        deleteInChunks(job, () -> {
+            List<Long> buildIds = buildRepository.findIdChunkByProjectId(projectId, chunkSize);
+            for (Long buildId : buildIds) {
+                buildLogStore.delete(buildId);
+            }
+            job.setBuildLogsDeleted(job.getBuildLogsDeleted() + buildIds.size());
+            buildRepository.deleteAllByIdInBatch(buildIds);
+            return buildIds.size();
+        });
+
+        workspaceManager.removeProject(projectId, project.getProjectName());
+
+        String githubUrl = projectConfigRepository.findGithubUrlByProjectId(projectId);
+        // what is left is a handful of configuration rows, removed through the entity cascade
+        projectRepository.delete(project);
+        job.setRowsDeleted(job.getRowsDeleted() + 1);
+        // once the project's configuration is gone, its mirror may have no users left
+        repositoryMirrorCache.removeUnreferenced(githubUrl);
+        projectEventBus.publish(ProjectUpdateType.DELETED, project);
+    }
+
+    private void deleteInChunks(DeletionJob job, IntSupplier chunk) {
+        int deleted;
+        do {
+            deleted = chunk.getAsInt();
+            job.setRowsDeleted(job.getRowsDeleted() + deleted);
+        } while (deleted > 0);
+    }
+
+    private void unscheduleRuns(Long projectId) throws SchedulerException {
+        String prefix = "executeScheduleJob_" + projectId + "_";
+        for (JobKey key : scheduler.getJobKeys(GroupMatcher.anyJobGroup())) {
+            if (key.getName().startsWith(prefix)) {
+                scheduler.deleteJob(key);
+            }
+        }
+    }
+
+    private boolean isActive(DeletionJob job) {
+        return job.getStatus() == DeletionJobStatus.PENDING || job.getStatus() == DeletionJobStatus.RUNNING;
+    }
+
+    private void evictFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(jobTtlMinutes);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(cutoff));
+    }
+
+    private interface JobBody {
+        void run(DeletionJob job) throws Exception;
+    }
+}
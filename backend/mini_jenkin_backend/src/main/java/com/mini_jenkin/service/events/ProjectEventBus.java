@@ -0,0 +1,168 @@
+package com.mini_jenkin.service.events;
+
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.exception.SubscriptionLimitException;
+import com.mini_jenkin.payload.ProjectUpdateEvent;
+import com.mini_jenkin.payload.ProjectUpdateStats;
+import com.mini_jenkin.payload.ProjectUpdateType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process bus for project and build state changes. Events are routed to a topic per owning
+ * user, so a change is only handed to the connections of the user it belongs to and the cost of
+ * publishing does not grow with the number of other dashboards open on the node.
+ */
+@Component
+@Slf4j
+public class ProjectEventBus {
+
+    @Value("${project-updates.subscriber-buffer:256}")
+    private int subscriberBuffer;
+
+    @Value("${project-updates.max-connections:5000}")
+    private int maxConnections;
+
+    @Value("${project-updates.max-connections-per-user:20}")
+    private int maxConnectionsPerUser;
+
+    private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private Flux<Long> heartbeats;
+
+    @Value("${project-updates.heartbeat-seconds:15}")
+    public void setHeartbeatSeconds(long heartbeatSeconds) {
+        // one timer shared by every connection
+        heartbeats = Flux.interval(Duration.ofSeconds(heartbeatSeconds)).onBackpressureDrop().share();
+    }
+
+    public void publish(ProjectUpdateType type, Project project) {
+        publish(type, project, null, null);
+    }
+
+    public void publish(ProjectUpdateType type, Project project, Long buildId, BuildStatus buildStatus) {
+        publish(ProjectUpdateEvent.builder()
+                .type(type)
+                .projectId(project.getProjectId())
+                .userId(project.getUserId())
+                .projectName(project.getProjectName())
+                .projectStatus(project.getProjectStatus())
+                .buildId(buildId)
+                .buildStatus(buildStatus)
+                .build());
+    }
+
+    public void publish(ProjectUpdateEvent event) {
+        event.setTimestamp(LocalDateTime.now());
+        // emissions into a sink must not overlap, publishers run on build workers and request threads
+        synchronized (version) {
+            event.setVersion(version.incrementAndGet());
+            published.incrementAndGet();
+            Topic topic = event.getUserId() == null ? null : topics.get(event.getUserId());
+            if (topic != null) {
+                topic.sink.tryEmitNext(event);
+            }
+        }
+    }
+
+    public long currentVersion() {
+        return version.get();
+    }
+
+    /**
+     * Opens a subscription to one user's project updates, optionally narrowed to some of their
+     * projects. The connection is reserved right here, so a node or user at its connection limit
+     * gets a SubscriptionLimitException while the request can still get an error status; the
+     * caller must subscribe to the returned Flux, which gives the slot back when it terminates. A
+     * slow client loses its oldest pending events instead of holding up publishers.
+     */
+    public Flux<ProjectUpdateEvent> subscribe(String userId, Collection<Long> projectIds) {
+        Topic topic = join(userId);
+        AtomicBoolean left = new AtomicBoolean();
+        Set<Long> filter = projectIds == null || projectIds.isEmpty() ? null : Set.copyOf(projectIds);
+        return topic.sink.asFlux()
+                .filter(event -> filter == null || filter.contains(event.getProjectId()))
+                .onBackpressureBuffer(subscriberBuffer,
+                        lost -> dropped.incrementAndGet(),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(event -> delivered.incrementAndGet())
+                .doFinally(signal -> {
+                    if (left.compareAndSet(false, true)) {
+                        leave(userId);
+                    }
+                });
+    }
+
+    public Flux<Long> heartbeats() {
+        return heartbeats;
+    }
+
+    public ProjectUpdateStats stats() {
+        return ProjectUpdateStats.builder()
+                .connections(connections.get())
+                .maxConnections(maxConnections)
+                .subscribedUsers(topics.size())
+                .publishedEvents(published.get())
+                .deliveredEvents(delivered.get())
+                .droppedEvents(dropped.get())
+                .rejectedConnections(rejected.get())
+                .version(version.get())
+                .build();
+    }
+
+    private Topic join(String userId) {
+        if (connections.incrementAndGet() > maxConnections) {
+            connections.decrementAndGet();
+            rejected.incrementAndGet();
+            throw new SubscriptionLimitException("Node is at its limit of " + maxConnections + " update connections");
+        }
+        try {
+            return topics.compute(userId, (id, existing) -> {
+                Topic joined = existing == null ? new Topic() : existing;
+                if (joined.subscribers >= maxConnectionsPerUser) {
+                    throw new SubscriptionLimitException("User already has " + maxConnectionsPerUser + " update connections open", true);
+                }
+                joined.subscribers++;
+                return joined;
+            });
+        } catch (SubscriptionLimitException e) {
+            connections.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    private void leave(String userId) {
+        connections.decrementAndGet();
+        topics.computeIfPresent(userId, (id, topic) -> --topic.subscribers == 0 ? null : topic);
+    }
+
+    private static class Topic {
+        private final Sinks.Many<ProjectUpdateEvent> sink = Sinks.many().multicast().directBestEffort();
+        // guarded by the topics map entry
+        private int subscribers;
+    }
+}
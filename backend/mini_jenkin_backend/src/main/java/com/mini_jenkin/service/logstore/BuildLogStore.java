@@ -0,0 +1,362 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.exception.ResourceNotFoundException;
+import com.mini_jenkin.payload.LogRange;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Build output storage: one directory per build under REPO_BASE_DIR/.build-logs holding
+ * append-only segment files and a sparse line index, so any line range can be read with one
+ * index lookup and one seek regardless of how large the log is. Once a build is finished its
+ * segments are gzipped in place, and old builds can be moved to an archive directory; reads
+ * handle both transparently.
+ */
+@Component
+@Slf4j
+public class BuildLogStore {
+
+    static final String INDEX_FILE = "lines.idx";
+    static final String SEGMENT_SUFFIX = ".log";
+    static final String COMPRESSED_SUFFIX = ".log.gz";
+    // the build's timeline, kept with its log so retention and archiving treat both alike
+    static final String TRACE_FILE = "trace.json.gz";
+    // one index entry per this many lines
+    static final int INDEX_INTERVAL = 64;
+
+    @Value("${default.REPO_BASE_DIR}")
+    private String defaultRepoPath;
+
+    @Value("${build.logs.segment-bytes:16777216}")
+    private long segmentBytes;
+
+    // optional second tier for old logs, e.g. a larger and slower disk
+    @Value("${build.logs.archive-dir:}")
+    private String archiveDir;
+
+    private Path root;
+    private Path archiveRoot;
+    private final Map<Long, SegmentedLogWriter> openWriters = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(defaultRepoPath, ".build-logs");
+        Files.createDirectories(root);
+        if (archiveDir != null && !archiveDir.isBlank()) {
+            archiveRoot = Path.of(archiveDir);
+            Files.createDirectories(archiveRoot);
+        }
+    }
+
+    public SegmentedLogWriter openWriter(Long buildId) {
+        try {
+            Path directory = directory(buildId);
+            Files.createDirectories(directory);
+            SegmentedLogWriter writer = new SegmentedLogWriter(directory, segmentBytes);
+            openWriters.put(buildId, writer);
+            return writer;
+        } catch (IOException e) {
+            throw new GeneralException("Could not open log for build " + buildId + ": " + e.getMessage());
+        }
+    }
+
+    public void closeWriter(Long buildId) {
+        SegmentedLogWriter writer = openWriters.remove(buildId);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("Could not close log for build {}: {}", buildId, e.getMessage(), e);
+        }
+    }
+
+    public boolean isOpen(Long buildId) {
+        return openWriters.containsKey(buildId);
+    }
+
+    /**
+     * Flushes the build's writer if it is still open and returns how many lines readers can see, or 0 if nothing was written yet.
+     */
+    public long flush(Long buildId) {
+        SegmentedLogWriter writer = openWriters.get(buildId);
+        try {
+            if (writer != null) {
+                return writer.flush();
+            }
+            return Files.isDirectory(locate(buildId)) ? read(buildId, 0, 0).getTotalLines() : 0;
+        } catch (IOException e) {
+            throw new GeneralException("Could not flush log for build " + buildId + ": " + e.getMessage());
+        }
+    }
+
+    public LogRange read(Long buildId, long offset, int limit) {
+        try {
+            return readOnce(buildId, offset, limit);
+        } catch (GeneralException e) {
+            if (!(e.getCause() instanceof NoSuchFileException)) {
+                throw e;
+            }
+            // a segment was compressed or archived between listing and opening it
+            return readOnce(buildId, offset, limit);
+        }
+    }
+
+    private LogRange readOnce(Long buildId, long offset, int limit) {
+        Path directory = locate(buildId);
+        if (!Files.isDirectory(directory)) {
+            throw new ResourceNotFoundException("No log stored for build " + buildId);
+        }
+        try (FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            MappedByteBuffer entries = index.map(FileChannel.MapMode.READ_ONLY, 0, index.size());
+            long totalLines = entries.getLong(0);
+            offset = Math.max(offset, 0);
+            if (offset >= totalLines || limit <= 0) {
+                return range(buildId, offset, totalLines, List.of());
+            }
+            int entry = (int) (offset / INDEX_INTERVAL);
+            long startPosition = entries.getLong(Long.BYTES + entry * Long.BYTES);
+            long skip = offset - (long) entry * INDEX_INTERVAL;
+            long count = Math.min(totalLines - offset, limit);
+            return range(buildId, offset, totalLines, readLines(directory, startPosition, skip, count));
+        } catch (IOException e) {
+            GeneralException failure = new GeneralException("Could not read log for build " + buildId + ": " + e.getMessage());
+            failure.initCause(e);
+            throw failure;
+        }
+    }
+
+    public LogRange tail(Long buildId, int lines) {
+        long totalLines = read(buildId, 0, 0).getTotalLines();
+        return read(buildId, totalLines - lines, lines);
+    }
+
+    public void writeTrace(Long buildId, byte[] json) {
+        Path directory = directory(buildId);
+        Path temporary = directory.resolve(TRACE_FILE + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                out.write(json);
+            }
+            Files.move(temporary, directory.resolve(TRACE_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new GeneralException("Could not write trace for build " + buildId + ": " + e.getMessage());
+        }
+    }
+
+    public byte[] readTrace(Long buildId) {
+        Path trace = locate(buildId).resolve(TRACE_FILE);
+        if (!Files.exists(trace)) {
+            throw new ResourceNotFoundException("No trace stored for build " + buildId);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(trace))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new GeneralException("Could not read trace for build " + buildId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gzips the segments of a finished build. Each segment is replaced only once its compressed
+     * copy is complete, so readers always find one of the two. Not safe to run twice at once for
+     * the same build, LogCompactor runs every compression on its single thread.
+     */
+    public void compress(Long buildId) {
+        if (isOpen(buildId)) {
+            return;
+        }
+        Path directory = locate(buildId);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            for (Path segment : segments(directory).values()) {
+                String name = segment.getFileName().toString();
+                if (!name.endsWith(SEGMENT_SUFFIX)) {
+                    continue;
+                }
+                Path temporary = segment.resolveSibling(name + ".gz.tmp");
+                try (InputStream in = Files.newInputStream(segment);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+                Files.move(temporary, segment.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + COMPRESSED_SUFFIX),
+                        StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            log.warn("Could not compress log for build {}: {}", buildId, e.getMessage());
+        }
+    }
+
+    /**
+     * Moves a finished build's log to the archive directory. Does nothing when no archive is configured.
+     */
+    public void archive(Long buildId) {
+        Path directory = directory(buildId);
+        if (archiveRoot == null || isOpen(buildId) || !Files.isDirectory(directory)) {
+            return;
+        }
+        Path target = archiveRoot.resolve(String.valueOf(buildId));
+        try {
+            Files.createDirectories(target);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Files.copy(file, target.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            // readers fall back to the archive once the hot copy is gone
+            deleteDirectory(directory);
+        } catch (IOException e) {
+            log.warn("Could not archive log for build {}: {}", buildId, e.getMessage());
+        }
+    }
+
+    public boolean isArchived(Long buildId) {
+        return archiveRoot != null && !Files.isDirectory(directory(buildId)) && Files.isDirectory(archiveRoot.resolve(String.valueOf(buildId)));
+    }
+
+    public boolean exists(Long buildId) {
+        return Files.isDirectory(locate(buildId));
+    }
+
+    /**
+     * Ids of the builds with a log in the hot directory.
+     */
+    public List<Long> hotBuildIds() {
+        try (Stream<Path> directories = Files.list(root)) {
+            return directories
+                    .map(path -> path.getFileName().toString())
+                    .filter(name -> name.chars().allMatch(Character::isDigit))
+                    .map(Long::valueOf)
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Could not list build logs: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    public void delete(Long buildId) {
+        closeWriter(buildId);
+        deleteDirectory(directory(buildId));
+        if (archiveRoot != null) {
+            deleteDirectory(archiveRoot.resolve(String.valueOf(buildId)));
+        }
+    }
+
+    private void deleteDirectory(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.warn("Could not delete log directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    Path directory(Long buildId) {
+        return root.resolve(String.valueOf(buildId));
+    }
+
+    /**
+     * Where a build's log currently lives, the hot directory unless it has been archived.
+     */
+    Path locate(Long buildId) {
+        Path hot = directory(buildId);
+        if (archiveRoot == null || Files.isDirectory(hot)) {
+            return hot;
+        }
+        Path archived = archiveRoot.resolve(String.valueOf(buildId));
+        return Files.isDirectory(archived) ? archived : hot;
+    }
+
+    static String segmentName(long base) {
+        return String.format("%020d%s", base, SEGMENT_SUFFIX);
+    }
+
+    private List<String> readLines(Path directory, long startPosition, long skip, long count) throws IOException {
+        TreeMap<Long, Path> segments = segments(directory);
+        List<String> lines = new ArrayList<>((int) Math.min(count, 10_000));
+        Map.Entry<Long, Path> segment = segments.floorEntry(startPosition);
+        long positionInSegment = startPosition - segment.getKey();
+        while (segment != null && lines.size() < count) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(openSegment(segment.getValue(), positionInSegment), StandardCharsets.UTF_8))) {
+                String line;
+                while (lines.size() < count && (line = reader.readLine()) != null) {
+                    if (skip > 0) {
+                        skip--;
+                    } else {
+                        lines.add(line);
+                    }
+                }
+            }
+            segment = segments.higherEntry(segment.getKey());
+            positionInSegment = 0;
+        }
+        return lines;
+    }
+
+    private InputStream openSegment(Path segment, long position) throws IOException {
+        if (segment.getFileName().toString().endsWith(COMPRESSED_SUFFIX)) {
+            // segments are bounded by segment-bytes, so inflating up to the position is cheap enough
+            InputStream in = new GZIPInputStream(Files.newInputStream(segment), 64 * 1024);
+            in.skipNBytes(position);
+            return in;
+        }
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ);
+        channel.position(position);
+        return Channels.newInputStream(channel);
+    }
+
+    private TreeMap<Long, Path> segments(Path directory) throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX)) {
+                    segments.put(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+                } else if (name.endsWith(COMPRESSED_SUFFIX)) {
+                    // a plain copy left behind by an interrupted compression is just as good
+                    segments.putIfAbsent(Long.parseLong(name.substring(0, name.length() - COMPRESSED_SUFFIX.length())), file);
+                }
+            });
+        }
+        return segments;
+    }
+
+    private LogRange range(Long buildId, long offset, long totalLines, List<String> lines) {
+        return LogRange.builder()
+                .buildId(buildId)
+                .offset(offset)
+                .nextOffset(offset + lines.size())
+                .totalLines(totalLines)
+                .lines(lines)
+                .build();
+    }
+}
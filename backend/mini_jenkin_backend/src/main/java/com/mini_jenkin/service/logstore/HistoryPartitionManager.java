@@ -0,0 +1,258 @@
+package com.mini_jenkin.service.logstore;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the log and build-history tables range-partitioned by month on Postgres. On startup an
+ * empty plain table left by Hibernate's schema update is converted in place; one that already
+ * holds rows is left alone until db/partition-history-tables.sql has turned it into the
+ * <table>_legacy partition. Afterwards partitions are created ahead of time and, when a retention
+ * is configured, whole months past it are dropped, which is instant compared to deleting their
+ * rows. A DEFAULT partition takes rows outside the created months, e.g. after a missed
+ * maintenance run or clock skew.
+ */
+@Component
+@Slf4j
+public class HistoryPartitionManager {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    // upper bound of the partition the migration script attaches, FOR VALUES FROM (MINVALUE) TO ('2026-12-01 00:00:00')
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+
+    // table and the timestamp column it is partitioned on
+    private static final List<PartitionedTable> TABLES = List.of(
+            new PartitionedTable("project_logs", "log_time", "idx_project_logs_project_time", "project_id, log_time", false),
+            new PartitionedTable("build_logs", "timestamp", "idx_build_logs_project_time", "project_id, timestamp", true));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${build.history.partitioning.enabled:true}")
+    private boolean enabled;
+
+    @Value("${build.history.partitioning.months-ahead:2}")
+    private int monthsAhead;
+
+    // 0 keeps every partition, per-project log retention applies either way
+    @Value("${build.history.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    /**
+     * Runs ahead of the other startup listeners, so tables are converted before build workers
+     * start writing logs.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        for (PartitionedTable table : TABLES) {
+            try {
+                if (isPlainTable(table.name()) && !convertIfEmpty(table)) {
+                    log.warn("{} already holds rows and stays a plain table, partition it with db/partition-history-tables.sql", table.name());
+                }
+            } catch (Exception e) {
+                log.error("Could not partition {}, leaving it as a plain table: {}", table.name(), e.getMessage(), e);
+            }
+        }
+        maintain();
+    }
+
+    @Scheduled(cron = "${build.history.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        YearMonth now = YearMonth.now();
+        for (PartitionedTable table : TABLES) {
+            try {
+                if (!isPartitioned(table.name())) {
+                    continue;
+                }
+                createPartitions(table.name(), now, now.plusMonths(monthsAhead));
+                if (retentionMonths > 0) {
+                    dropPartitionsBefore(table.name(), now.minusMonths(retentionMonths));
+                }
+            } catch (Exception e) {
+                log.error("Partition maintenance failed for {}: {}", table.name(), e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Start of the oldest month maintain() keeps of a table, or null when it drops none. Rows
+     * before it go with their partition, so row-by-row retention can leave them alone.
+     */
+    public LocalDateTime retainedFrom(String name) {
+        if (!enabled || retentionMonths <= 0 || !isPartitioned(name)) {
+            return null;
+        }
+        LocalDateTime horizon = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay();
+        // the legacy partition is only dropped whole, its rows before the horizon are still there until then
+        LocalDate legacyEnd = legacyUpperBound(name);
+        return legacyEnd != null && legacyEnd.atStartOfDay().isAfter(horizon) ? null : horizon;
+    }
+
+    /**
+     * Swaps an empty plain table for a partitioned one, or returns false when rows arrived
+     * meanwhile; copying them would hold the exclusive lock for as long as the copy takes.
+     */
+    private boolean convertIfEmpty(PartitionedTable table) {
+        String name = table.name();
+        String column = table.column();
+        String old = name + "_unpartitioned";
+        boolean converted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            // blocks writers until the new table is in place, they then continue against it
+            jdbcTemplate.execute("LOCK TABLE " + name + " IN ACCESS EXCLUSIVE MODE");
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + name + ")", Boolean.class))) {
+                return false;
+            }
+            jdbcTemplate.execute("ALTER TABLE " + name + " RENAME TO " + old);
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + old + " INCLUDING DEFAULTS) PARTITION BY RANGE (\"" + column + "\")");
+            jdbcTemplate.execute("ALTER TABLE " + name + " ALTER COLUMN \"" + column + "\" SET NOT NULL");
+            jdbcTemplate.execute("DROP TABLE " + old);
+            createPartitions(name, YearMonth.now(), YearMonth.now().plusMonths(monthsAhead));
+            // the partition key has to be part of the primary key
+            jdbcTemplate.execute("ALTER TABLE " + name + " ADD PRIMARY KEY (id, \"" + column + "\")");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + table.index() + " ON " + name + " (" + quote(table.indexColumns()) + ")");
+            if (table.identity()) {
+                // identity columns are not carried over to partitioned tables, a sequence default replaces it
+                String sequence = name + "_partitioned_id_seq";
+                jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence + " OWNED BY " + name + ".id");
+                jdbcTemplate.execute("SELECT setval('" + sequence + "', (SELECT COALESCE(max(id), 0) + 1 FROM " + name + "), false)");
+                jdbcTemplate.execute("ALTER TABLE " + name + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+            }
+            return true;
+        }));
+        if (converted) {
+            log.info("Converted {} to a table partitioned by month on {}", name, column);
+        }
+        return converted;
+    }
+
+    private void createPartitions(String name, YearMonth from, YearMonth to) {
+        String defaultPartition = name + "_default";
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + defaultPartition + " PARTITION OF " + name + " DEFAULT");
+        // months before the cutover belong to the legacy partition
+        LocalDate legacyEnd = legacyUpperBound(name);
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            YearMonth target = month;
+            String partition = partitionName(name, target);
+            if (exists(partition) || (legacyEnd != null && target.atDay(1).isBefore(legacyEnd))) {
+                continue;
+            }
+            String lower = "'" + target.atDay(1) + "'";
+            String upper = "'" + target.plusMonths(1).atDay(1) + "'";
+            String range = " FOR VALUES FROM (" + lower + ") TO (" + upper + ")";
+            String column = columnOf(name);
+            String inRange = " WHERE \"" + column + "\" >= " + lower + " AND \"" + column + "\" < " + upper;
+            transactionTemplate.executeWithoutResult(status -> {
+                Boolean defaulted = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + defaultPartition + inRange + ")", Boolean.class);
+                if (!Boolean.TRUE.equals(defaulted)) {
+                    jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + name + range);
+                    return;
+                }
+                // a month's partition cannot be added while the default partition holds rows of that month, they move over first
+                jdbcTemplate.execute("CREATE TABLE " + partition + " (LIKE " + name + " INCLUDING DEFAULTS)");
+                jdbcTemplate.execute("INSERT INTO " + partition + " SELECT * FROM " + defaultPartition + inRange);
+                jdbcTemplate.execute("DELETE FROM " + defaultPartition + inRange);
+                jdbcTemplate.execute("ALTER TABLE " + name + " ATTACH PARTITION " + partition + range);
+                log.info("Moved rows of {} out of {}", target, defaultPartition);
+            });
+        }
+    }
+
+    private boolean exists(String relation) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, relation));
+    }
+
+    private static String columnOf(String name) {
+        return TABLES.stream().filter(table -> table.name().equals(name)).findFirst().orElseThrow().column();
+    }
+
+    private void dropPartitionsBefore(String name, YearMonth horizon) {
+        List<String> partitions = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent WHERE p.relname = ?",
+                String.class, name);
+        String cutoff = partitionName(name, horizon);
+        for (String partition : partitions) {
+            // names sort by month, so anything ordering before the horizon's name is older
+            if (partition.startsWith(name + "_p") && partition.length() == cutoff.length() && partition.compareTo(cutoff) < 0) {
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition);
+                log.info("Dropped expired partition {}", partition);
+            }
+        }
+        LocalDate legacyEnd = legacyUpperBound(name);
+        if (legacyEnd != null && !legacyEnd.isAfter(horizon.atDay(1))) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + legacyName(name));
+            log.info("Dropped expired partition {}", legacyName(name));
+        }
+    }
+
+    /**
+     * First day past the legacy partition the migration script attached, or null without one.
+     */
+    private LocalDate legacyUpperBound(String name) {
+        List<String> bounds = jdbcTemplate.queryForList(
+                "SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace WHERE c.relname = ? AND n.nspname = current_schema() AND c.relispartition",
+                String.class, legacyName(name));
+        if (bounds.isEmpty() || bounds.get(0) == null) {
+            return null;
+        }
+        Matcher matcher = UPPER_BOUND.matcher(bounds.get(0));
+        return matcher.find() ? LocalDate.parse(matcher.group(1)) : null;
+    }
+
+    private boolean isPlainTable(String name) {
+        return relationKind(name).equals("r");
+    }
+
+    private boolean isPartitioned(String name) {
+        return relationKind(name).equals("p");
+    }
+
+    private String relationKind(String name) {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace WHERE c.relname = ? AND n.nspname = current_schema()",
+                String.class, name);
+        return kinds.isEmpty() ? "" : kinds.get(0);
+    }
+
+    private static String legacyName(String name) {
+        return name + "_legacy";
+    }
+
+    private static String partitionName(String name, YearMonth month) {
+        return name + "_p" + month.format(SUFFIX);
+    }
+
+    private static String quote(String columns) {
+        return String.join(", ", Arrays.stream(columns.split(",\\s*")).map(column -> "\"" + column + "\"").toList());
+    }
+
+    private record PartitionedTable(String name, String column, String index, String indexColumns, boolean identity) {
+    }
+}
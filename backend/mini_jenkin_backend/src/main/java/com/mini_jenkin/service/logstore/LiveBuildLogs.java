@@ -0,0 +1,117 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.payload.LogLine;
+import com.mini_jenkin.payload.LogRange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes build output to followers as the output pump produces it. Each follower first reads
+ * what is already in the log store, then switches to live lines. A follower that falls behind is
+ * never allowed to slow the build down: when its buffer overflows or it notices a missing line
+ * number, it goes back to the store and resumes from the last line it delivered.
+ */
+@Component
+@Slf4j
+public class LiveBuildLogs {
+
+    private static final int HISTORY_PAGE = 1000;
+
+    @Autowired
+    private BuildLogStore buildLogStore;
+
+    @Value("${build.logs.stream-buffer-lines:2048}")
+    private int streamBufferLines;
+
+    private final Map<Long, Sinks.Many<LogLine>> sinks = new ConcurrentHashMap<>();
+
+    public void open(Long buildId) {
+        sinks.computeIfAbsent(buildId, id -> Sinks.many().multicast().directBestEffort());
+    }
+
+    /**
+     * Called from the build's worker thread only, so emissions on a sink are never concurrent.
+     */
+    public void publish(Long buildId, long lineNo, String text) {
+        Sinks.Many<LogLine> sink = sinks.get(buildId);
+        if (sink != null) {
+            sink.tryEmitNext(new LogLine(lineNo, text));
+        }
+    }
+
+    /**
+     * Ends the live stream. The build's log writer must be closed first so followers can pick up
+     * any remaining lines from the store.
+     */
+    public void complete(Long buildId) {
+        Sinks.Many<LogLine> sink = sinks.remove(buildId);
+        if (sink != null) {
+            sink.tryEmitComplete();
+        }
+    }
+
+    public Flux<LogLine> follow(Long buildId, long from) {
+        AtomicLong expected = new AtomicLong(Math.max(from, 0));
+        return Flux.defer(() -> {
+                    Sinks.Many<LogLine> sink = sinks.get(buildId);
+                    if (sink == null) {
+                        return history(buildId, expected.get(), Long.MAX_VALUE);
+                    }
+                    long boundary = buildLogStore.flush(buildId);
+                    Flux<LogLine> live = sink.asFlux()
+                            .onBackpressureBuffer(streamBufferLines)
+                            .filter(line -> line.getLineNo() >= boundary);
+                    return Flux.mergeSequential(history(buildId, expected.get(), boundary), live)
+                            // the live stream may have completed before this follower subscribed to it
+                            .concatWith(Flux.defer(() -> history(buildId, expected.get(), Long.MAX_VALUE)));
+                })
+                .<LogLine>handle((line, sink) -> {
+                    if (line.getLineNo() < expected.get()) {
+                        return;
+                    }
+                    if (line.getLineNo() > expected.get()) {
+                        sink.error(new LogGapException());
+                        return;
+                    }
+                    expected.incrementAndGet();
+                    sink.next(line);
+                })
+                .onErrorResume(error -> error instanceof LogGapException || Exceptions.isOverflow(error), error -> {
+                    log.debug("Log follower of build {} resuming from line {}: {}", buildId, expected.get(), error.toString());
+                    return follow(buildId, expected.get());
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .publishOn(Schedulers.boundedElastic());
+    }
+
+    private Flux<LogLine> history(Long buildId, long from, long until) {
+        return Flux.defer(() -> {
+            if (from >= until || (until == Long.MAX_VALUE && buildLogStore.flush(buildId) == 0)) {
+                return Flux.empty();
+            }
+            LogRange range = buildLogStore.read(buildId, from, (int) Math.min(HISTORY_PAGE, until - from));
+            Flux<LogLine> page = Flux.range(0, range.getLines().size())
+                    .map(i -> new LogLine(from + i, range.getLines().get(i)));
+            if (range.getLines().isEmpty() || range.getNextOffset() >= until) {
+                return page;
+            }
+            return page.concatWith(history(buildId, range.getNextOffset(), until));
+        });
+    }
+
+    private static class LogGapException extends RuntimeException {
+        LogGapException() {
+            super("missed live log lines", null, false, false);
+        }
+    }
+}
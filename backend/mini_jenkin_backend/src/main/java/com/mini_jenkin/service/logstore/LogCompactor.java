@@ -0,0 +1,161 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.ProjectConfig;
+import com.mini_jenkin.repository.BuildRepository;
+import com.mini_jenkin.repository.ProjectConfigRepository;
+import com.mini_jenkin.repository.ProjectLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Background maintenance of stored logs: compresses a build's log once the build is done, moves
+ * old logs to the archive tier, and enforces each project's retention (keep the last N builds
+ * and nothing older than N days) for both build logs and project log rows.
+ */
+@Component
+@Slf4j
+public class LogCompactor {
+
+    @Autowired
+    private BuildLogStore buildLogStore;
+
+    @Autowired
+    private BuildRepository buildRepository;
+
+    @Autowired
+    private ProjectConfigRepository projectConfigRepository;
+
+    @Autowired
+    private ProjectLogRepository projectLogRepository;
+
+    @Autowired
+    private HistoryPartitionManager historyPartitionManager;
+
+    @Autowired
+    @Qualifier("logCompactionExecutor")
+    private ExecutorService logCompactionExecutor;
+
+    @Value("${build.logs.retention.builds:100}")
+    private int defaultRetentionBuilds;
+
+    @Value("${build.logs.retention.days:90}")
+    private int defaultRetentionDays;
+
+    // 0 keeps every log in the hot directory
+    @Value("${build.logs.archive-after-days:0}")
+    private int archiveAfterDays;
+
+    @Value("${cleanup.chunk-size:5000}")
+    private int chunkSize;
+
+    /**
+     * Compresses a build's log off the calling thread. The build's writer must already be closed.
+     * Every compression and archive move runs on the single compaction thread, so two of them
+     * never work on the same build's files.
+     */
+    public void compressAsync(Long buildId) {
+        logCompactionExecutor.submit(() -> buildLogStore.compress(buildId));
+    }
+
+    @Scheduled(fixedDelayString = "${build.logs.retention.sweep-millis:3600000}", initialDelayString = "${build.logs.retention.sweep-millis:3600000}")
+    public void sweep() {
+        // months dropped as whole partitions are not deleted row by row
+        LocalDateTime retainedFrom = historyPartitionManager.retainedFrom("project_logs");
+        LocalDateTime rowsFrom = retainedFrom != null ? retainedFrom : LocalDateTime.of(1970, 1, 1, 0, 0);
+        for (ProjectConfig config : projectConfigRepository.findAll()) {
+            if (config.getProject() == null) {
+                continue;
+            }
+            try {
+                applyRetention(config.getProject().getProjectId(), rowsFrom,
+                        config.getLogRetentionBuilds() != null ? config.getLogRetentionBuilds() : defaultRetentionBuilds,
+                        config.getLogRetentionDays() != null ? config.getLogRetentionDays() : defaultRetentionDays);
+            } catch (Exception e) {
+                log.error("Log retention failed for project config {}: {}", config.getId(), e.getMessage(), e);
+            }
+        }
+        logCompactionExecutor.submit(this::compactHotLogs);
+    }
+
+    /**
+     * Removes the stored logs of all finished builds of a project and returns how many were removed.
+     */
+    public int purgeBuildLogs(Long projectId) {
+        int removed = 0;
+        for (Build build : buildRepository.findAllByProjectIdAndFinishedAtIsNotNullOrderByIdDesc(projectId)) {
+            if (buildLogStore.exists(build.getId())) {
+                buildLogStore.delete(build.getId());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private void applyRetention(Long projectId, LocalDateTime rowsFrom, int keepBuilds, int keepDays) {
+        List<Build> finished = buildRepository.findAllByProjectIdAndFinishedAtIsNotNullOrderByIdDesc(projectId);
+        LocalDateTime ageCutoff = LocalDateTime.now().minusDays(keepDays);
+        int removed = 0;
+        for (int i = 0; i < finished.size(); i++) {
+            Build build = finished.get(i);
+            boolean expired = i >= keepBuilds || build.getFinishedAt().isBefore(ageCutoff);
+            if (expired && buildLogStore.exists(build.getId())) {
+                buildLogStore.delete(build.getId());
+                removed++;
+            }
+        }
+
+        // project log rows are not tied to a build, drop whatever predates the oldest build still kept
+        LocalDateTime rowCutoff = ageCutoff;
+        if (keepBuilds == 0) {
+            rowCutoff = LocalDateTime.now();
+        } else if (finished.size() > keepBuilds) {
+            LocalDateTime oldestKept = finished.get(keepBuilds - 1).getQueuedAt();
+            if (oldestKept != null && oldestKept.isAfter(rowCutoff)) {
+                rowCutoff = oldestKept;
+            }
+        }
+        // in chunks, a first sweep after retention was turned on may have millions of rows to remove
+        int rows = 0;
+        int deleted;
+        do {
+            deleted = projectLogRepository.deleteChunkOlderThan(projectId, rowsFrom, rowCutoff, chunkSize);
+            rows += deleted;
+        } while (deleted > 0);
+        if (removed > 0 || rows > 0) {
+            log.info("Retention for project {}: removed {} build logs and {} log rows", projectId, removed, rows);
+        }
+    }
+
+    /**
+     * Compresses logs missed by compressAsync (e.g. across a restart) and archives old ones.
+     */
+    private void compactHotLogs() {
+        try {
+            List<Long> buildIds = buildLogStore.hotBuildIds();
+            if (buildIds.isEmpty()) {
+                return;
+            }
+            LocalDateTime archiveCutoff = LocalDateTime.now().minusDays(archiveAfterDays);
+            for (Build build : buildRepository.findAllById(buildIds)) {
+                if (build.getFinishedAt() == null || buildLogStore.isOpen(build.getId())) {
+                    continue;
+                }
+                buildLogStore.compress(build.getId());
+                if (archiveAfterDays > 0 && build.getFinishedAt().isBefore(archiveCutoff)) {
+                    buildLogStore.archive(build.getId());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Log compaction failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.entity.ProjectLogs;
+import com.mini_jenkin.repository.ProjectLogRepository;
+import com.mini_jenkin.service.metrics.BuildMetrics;
+import com.mini_jenkin.service.metrics.jfr.LogBatchFlushedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for project log rows. Callers only append to a lock-free queue; a flusher
+ * thread inserts the rows in JDBC batches every flush interval, or sooner once a full batch is
+ * waiting. When the database falls behind and the queue fills up, callers are held back for a
+ * bounded time before the row is dropped.
+ */
+@Component
+@Slf4j
+public class ProjectLogWriter {
+
+    @Autowired
+    private ProjectLogRepository projectLogRepository;
+
+    @Autowired
+    private BuildMetrics buildMetrics;
+
+    @Autowired
+    @Qualifier("projectLogFlushExecutor")
+    private ExecutorService projectLogFlushExecutor;
+
+    @Value("${project-logs.queue-capacity:10000}")
+    private int capacity;
+
+    @Value("${project-logs.batch-size:500}")
+    private int batchSize;
+
+    @Value("${project-logs.flush-interval-millis:200}")
+    private long flushIntervalMillis;
+
+    @Value("${project-logs.max-block-millis:2000}")
+    private long maxBlockMillis;
+
+    private final ConcurrentLinkedQueue<ProjectLogs> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    // held while a batch is taken off the queue and written, so a forced flush sees everything before it
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // rows taken off the queue whose insert failed, written first on the next attempt; guarded by flushLock
+    private List<ProjectLogs> failedBatch;
+
+    private volatile Thread flusher;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        projectLogFlushExecutor.submit(this::flushLoop);
+    }
+
+    @PreDestroy
+    public void stop() {
+        projectLogFlushExecutor.shutdownNow();
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Lost {} project logs on shutdown: {}", size.get(), e.getMessage());
+        }
+    }
+
+    public void append(ProjectLogs projectLog) {
+        if (size.get() >= capacity && !awaitSpace()) {
+            long total = dropped.incrementAndGet();
+            log.warn("Project log queue full, dropped log for project {} ({} dropped so far)", projectLog.getProjectId(), total);
+            return;
+        }
+        queue.offer(projectLog);
+        if (size.incrementAndGet() == batchSize) {
+            wakeFlusher();
+        }
+    }
+
+    /**
+     * Writes everything queued so far before returning.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (writeBatch() > 0) {
+                // keep draining
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public int pending() {
+        return size.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private boolean awaitSpace() {
+        wakeFlusher();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxBlockMillis);
+        while (size.get() >= capacity) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    private void wakeFlusher() {
+        Thread thread = flusher;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void flushLoop() {
+        flusher = Thread.currentThread();
+        long backoffMillis = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (size.get() < batchSize || backoffMillis > 0) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis + backoffMillis));
+            }
+            try {
+                flush();
+                backoffMillis = 0;
+            } catch (Exception e) {
+                // rows stay queued, the growing queue pushes back on writers until the database recovers
+                backoffMillis = Math.min(Math.max(backoffMillis * 2, 100), 5000);
+                log.error("Could not write project logs, retrying in {} ms: {}", flushIntervalMillis + backoffMillis, e.getMessage());
+            }
+        }
+    }
+
+    private int writeBatch() {
+        List<ProjectLogs> batch = failedBatch != null ? failedBatch : new ArrayList<>(Math.min(batchSize, Math.max(size.get(), 1)));
+        failedBatch = null;
+        for (ProjectLogs next = queue.peek(); next != null && batch.size() < batchSize; next = queue.peek()) {
+            batch.add(next);
+            queue.poll();
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        LogBatchFlushedEvent event = new LogBatchFlushedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean written = false;
+        try {
+            projectLogRepository.saveAll(batch);
+            written = true;
+        } catch (RuntimeException e) {
+            failedBatch = batch;
+            throw e;
+        } finally {
+            buildMetrics.recordProjectLogFlush(System.nanoTime() - start, batch.size(), written);
+            if (event.shouldCommit()) {
+                event.rows = batch.size();
+                event.success = written;
+                event.commit();
+            }
+        }
+        size.addAndGet(-batch.size());
+        return batch.size();
+    }
+}
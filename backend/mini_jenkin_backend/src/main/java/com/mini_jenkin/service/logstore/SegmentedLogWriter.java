@@ -0,0 +1,128 @@
+package com.mini_jenkin.service.logstore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only writer for one build log. Lines go to segment files named after the logical byte
+ * offset they start at; every INDEX_INTERVAL-th line gets its logical offset recorded in the index,
+ * whose first 8 bytes hold the number of lines readers may see.
+ */
+public class SegmentedLogWriter implements Closeable {
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private final ByteBuffer indexBuffer = ByteBuffer.allocate(8 * 1024);
+    private final FileChannel index;
+    private FileChannel segment;
+    private long segmentBase;
+    private long position;
+    private long lines;
+    private boolean closed;
+
+    SegmentedLogWriter(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.index = FileChannel.open(directory.resolve(BuildLogStore.INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.index.write(ByteBuffer.allocate(Long.BYTES), 0);
+        this.index.position(Long.BYTES);
+        openSegment(0);
+    }
+
+    /**
+     * Appends one logical line. Line breaks inside it are replaced, a line has to stay one physical
+     * line for the index and for readers counting lines.
+     */
+    public synchronized long appendLine(String line) throws IOException {
+        if (line.indexOf('\n') >= 0 || line.indexOf('\r') >= 0) {
+            line = line.replace('\r', ' ').replace('\n', ' ');
+        }
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        if (lines % BuildLogStore.INDEX_INTERVAL == 0) {
+            if (!indexBuffer.hasRemaining()) {
+                drainIndex();
+            }
+            indexBuffer.putLong(position);
+        }
+        // roll only on line boundaries so a line never spans two segments
+        if (position > segmentBase && position - segmentBase + bytes.length > segmentBytes) {
+            drainBuffer();
+            segment.close();
+            openSegment(position);
+        }
+        if (bytes.length > buffer.remaining()) {
+            drainBuffer();
+        }
+        if (bytes.length > buffer.capacity()) {
+            writeFully(segment, ByteBuffer.wrap(bytes));
+        } else {
+            buffer.put(bytes);
+        }
+        position += bytes.length;
+        return lines++;
+    }
+
+    public synchronized long getBytes() {
+        return position;
+    }
+
+    public synchronized long getLines() {
+        return lines;
+    }
+
+    /**
+     * Makes everything appended so far visible to readers and returns the number of visible lines.
+     */
+    public synchronized long flush() throws IOException {
+        if (closed) {
+            return lines;
+        }
+        drainBuffer();
+        drainIndex();
+        // the line count is published last, after the data it covers is on disk
+        index.write(ByteBuffer.allocate(Long.BYTES).putLong(0, lines), 0);
+        return lines;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        segment.close();
+        index.close();
+    }
+
+    private void openSegment(long base) throws IOException {
+        segmentBase = base;
+        segment = FileChannel.open(directory.resolve(BuildLogStore.segmentName(base)),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void drainBuffer() throws IOException {
+        buffer.flip();
+        writeFully(segment, buffer);
+        buffer.clear();
+    }
+
+    private void drainIndex() throws IOException {
+        indexBuffer.flip();
+        writeFully(index, indexBuffer);
+        indexBuffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer source) throws IOException {
+        while (source.hasRemaining()) {
+            channel.write(source);
+        }
+    }
+}
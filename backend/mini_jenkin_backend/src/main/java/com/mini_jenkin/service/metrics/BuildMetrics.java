@@ -0,0 +1,84 @@
+package com.mini_jenkin.service.metrics;
+
+import com.mini_jenkin.entity.BuildStatus;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters along the build path, recorded by the code doing the work. Latency meters
+ * publish histogram buckets so percentiles can be aggregated across scrapes in Prometheus.
+ * Tags stay low-cardinality: outcomes and operations, never project or stage names.
+ */
+@Component
+public class BuildMetrics {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void recordQueueWait(long millis) {
+        latency("build.queue.wait", "Time builds spent queued before a worker picked them up")
+                .register(meterRegistry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordBuild(BuildStatus outcome, long millis) {
+        latency("build.duration", "Run time of builds from start to finish")
+                .tag("outcome", outcome.name())
+                .register(meterRegistry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    public void recordStage(BuildStatus outcome, long millis) {
+        latency("build.stage.duration", "Run time of single pipeline stages")
+                .tag("outcome", outcome.name())
+                .register(meterRegistry)
+                .record(millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param operation clone for a fresh checkout, pull for updating an existing one
+     */
+    public void recordCheckout(Timer.Sample sample, String operation, boolean success) {
+        sample.stop(latency("git.checkout", "Time to bring a build workspace up to date")
+                .tag("operation", operation)
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry));
+    }
+
+    public void recordProjectLogFlush(long nanos, int rows, boolean success) {
+        Timer.builder("project.logs.flush")
+                .description("Time to insert one batch of project log rows")
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        if (success) {
+            DistributionSummary.builder("project.logs.batch.size")
+                    .description("Rows written per project log batch")
+                    .register(meterRegistry)
+                    .record(rows);
+        }
+    }
+
+    public void recordMailBatch(Timer.Sample sample, int sent, int failed) {
+        sample.stop(Timer.builder("mail.send")
+                .description("Time to send one batch of notification mails")
+                .register(meterRegistry));
+        meterRegistry.counter("mail.messages", "outcome", "sent").increment(sent);
+        meterRegistry.counter("mail.messages", "outcome", "failed").increment(failed);
+    }
+
+    private static Timer.Builder latency(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentileHistogram();
+    }
+}
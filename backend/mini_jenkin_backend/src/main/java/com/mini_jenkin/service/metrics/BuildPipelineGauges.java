@@ -0,0 +1,68 @@
+package com.mini_jenkin.service.metrics;
+
+import com.mini_jenkin.service.events.ProjectEventBus;
+import com.mini_jenkin.service.logstore.ProjectLogWriter;
+import com.mini_jenkin.service.projectbuild.BuildQueue;
+import com.mini_jenkin.service.projectbuild.BuildWorkerPool;
+import com.mini_jenkin.service.workspace.WorkspaceCollector;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gauges over state the build components already keep, read on every scrape.
+ */
+@Component
+public class BuildPipelineGauges implements MeterBinder {
+
+    @Autowired
+    private BuildQueue buildQueue;
+
+    @Autowired
+    private BuildWorkerPool buildWorkerPool;
+
+    @Autowired
+    private ProjectLogWriter projectLogWriter;
+
+    @Autowired
+    private ProjectEventBus projectEventBus;
+
+    @Autowired
+    private WorkspaceCollector workspaceCollector;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("build.queue.size", buildQueue, BuildQueue::size)
+                .description("Builds waiting in the queue")
+                .register(registry);
+        Gauge.builder("build.workers.active", buildWorkerPool, BuildWorkerPool::getActiveWorkers)
+                .description("Build workers currently running a build")
+                .register(registry);
+        Gauge.builder("build.workers.max", buildWorkerPool, BuildWorkerPool::getWorkers)
+                .register(registry);
+
+        Gauge.builder("project.logs.pending", projectLogWriter, ProjectLogWriter::pending)
+                .description("Project log rows waiting to be written")
+                .register(registry);
+        FunctionCounter.builder("project.logs.dropped", projectLogWriter, ProjectLogWriter::getDropped)
+                .description("Project log rows dropped because the write queue stayed full")
+                .register(registry);
+
+        Gauge.builder("workspace.disk.used", workspaceCollector, WorkspaceCollector::usedBytes)
+                .description("Disk used by build workspaces as last measured")
+                .baseUnit("bytes")
+                .register(registry);
+
+        Gauge.builder("sse.connections", projectEventBus, bus -> bus.stats().getConnections())
+                .description("Open project update streams")
+                .register(registry);
+        FunctionCounter.builder("sse.events.dropped", projectEventBus, bus -> bus.stats().getDroppedEvents())
+                .description("Project update events dropped for slow subscribers")
+                .register(registry);
+        FunctionCounter.builder("sse.connections.rejected", projectEventBus, bus -> bus.stats().getRejectedConnections())
+                .register(registry);
+    }
+}
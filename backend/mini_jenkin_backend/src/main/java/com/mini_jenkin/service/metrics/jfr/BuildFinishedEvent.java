@@ -0,0 +1,30 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.BuildFinished")
+@Label("Build Finished")
+@Category({"Mini Jenkin", "Build"})
+@Description("A build ran from start to its outcome")
+@StackTrace(false)
+public class BuildFinishedEvent extends Event {
+    @Label("Build Id")
+    public long buildId;
+
+    @Label("Project Id")
+    public long projectId;
+
+    @Label("Build Number")
+    public int buildNumber;
+
+    @Label("Status")
+    public String status;
+
+    @Label("Stages Run")
+    public int stages;
+}
@@ -0,0 +1,27 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.BuildQueued")
+@Label("Build Queued")
+@Category({"Mini Jenkin", "Build"})
+@Description("A build was added to the build queue")
+@StackTrace(false)
+public class BuildQueuedEvent extends Event {
+    @Label("Build Id")
+    public long buildId;
+
+    @Label("Project Id")
+    public long projectId;
+
+    @Label("Trigger")
+    public String trigger;
+
+    @Label("Priority")
+    public int priority;
+}
@@ -0,0 +1,26 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("minijenkin.BuildStarted")
+@Label("Build Started")
+@Category({"Mini Jenkin", "Build"})
+@Description("A worker picked up a queued build")
+@StackTrace(false)
+public class BuildStartedEvent extends Event {
+    @Label("Build Id")
+    public long buildId;
+
+    @Label("Project Id")
+    public long projectId;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.MILLISECONDS)
+    public long queueMillis;
+}
@@ -0,0 +1,27 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.CloneCompleted")
+@Label("Clone Completed")
+@Category({"Mini Jenkin", "Git"})
+@Description("The build workspace was cloned or pulled")
+@StackTrace(false)
+public class CloneCompletedEvent extends Event {
+    @Label("Build Id")
+    public long buildId;
+
+    @Label("Project Id")
+    public long projectId;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Success")
+    public boolean success;
+}
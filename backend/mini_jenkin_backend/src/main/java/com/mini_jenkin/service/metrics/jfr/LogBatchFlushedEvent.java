@@ -0,0 +1,21 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.LogBatchFlushed")
+@Label("Log Batch Flushed")
+@Category({"Mini Jenkin", "Logs"})
+@Description("A batch of project log rows was inserted")
+@StackTrace(false)
+public class LogBatchFlushedEvent extends Event {
+    @Label("Rows")
+    public int rows;
+
+    @Label("Success")
+    public boolean success;
+}
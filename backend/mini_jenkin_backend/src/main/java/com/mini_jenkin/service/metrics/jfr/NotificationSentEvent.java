@@ -0,0 +1,21 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.NotificationSent")
+@Label("Notification Sent")
+@Category({"Mini Jenkin", "Notifications"})
+@Description("A batch of notification mails was handed to SMTP")
+@StackTrace(false)
+public class NotificationSentEvent extends Event {
+    @Label("Mails")
+    public int mails;
+
+    @Label("Failed")
+    public int failed;
+}
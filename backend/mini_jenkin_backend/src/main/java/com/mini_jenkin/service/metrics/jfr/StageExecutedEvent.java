@@ -0,0 +1,42 @@
+package com.mini_jenkin.service.metrics.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("minijenkin.StageExecuted")
+@Label("Stage Executed")
+@Category({"Mini Jenkin", "Build"})
+@Description("One pipeline stage ran")
+@StackTrace(false)
+public class StageExecutedEvent extends Event {
+    @Label("Build Id")
+    public long buildId;
+
+    @Label("Project Id")
+    public long projectId;
+
+    @Label("Stage Index")
+    public int stageIndex;
+
+    @Label("Stage Name")
+    public String stageName;
+
+    @Label("Status")
+    public String status;
+
+    // -1 when the stage's process never exited on its own
+    @Label("Exit Code")
+    public int exitCode = -1;
+
+    @Label("Output Lines")
+    public long outputLines;
+
+    @Label("Output Bytes")
+    @DataAmount(DataAmount.BYTES)
+    public long outputBytes;
+}
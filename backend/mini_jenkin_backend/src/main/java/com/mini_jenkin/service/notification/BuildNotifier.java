@@ -0,0 +1,383 @@
+package com.mini_jenkin.service.notification;
+
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.entity.NotificationMode;
+import com.mini_jenkin.entity.User;
+import com.mini_jenkin.payload.BuildNotification;
+import com.mini_jenkin.payload.MailObject;
+import com.mini_jenkin.repository.UserRepository;
+import com.mini_jenkin.service.metrics.jfr.NotificationSentEvent;
+import com.mini_jenkin.service.serviceInterface.EmailSendingServiceInterface;
+import com.mini_jenkin.utility.Durations;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sends build notifications from its own thread so build workers never wait on SMTP. Finished
+ * builds are queued here, sent in batches over one connection, and retried with backoff when
+ * composing or sending them fails. Projects in DIGEST mode get one mail summarising their builds per digest window.
+ */
+@Component
+@Slf4j
+public class BuildNotifier {
+
+    @Autowired
+    @Qualifier("notificationExecutor")
+    private ExecutorService notificationExecutor;
+
+    @Autowired
+    private EmailSendingServiceInterface emailSendingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${build.notifications.batch-size:20}")
+    private int batchSize;
+
+    @Value("${build.notifications.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${build.notifications.retry-backoff-millis:30000}")
+    private long retryBackoffMillis;
+
+    @Value("${build.notifications.digest-minutes:60}")
+    private long digestMinutes;
+
+    @Value("${build.notifications.shutdown-timeout-seconds:30}")
+    private long shutdownTimeoutSeconds;
+
+    private final BlockingQueue<BuildNotification> queue;
+    private volatile boolean stopping;
+
+    // everything below is only touched by the sender thread
+    private final Map<Long, List<BuildNotification>> digests = new HashMap<>();
+    private final Map<Long, Long> digestDueAt = new HashMap<>();
+    private final List<PendingMail> retries = new ArrayList<>();
+    // finished builds not in DIGEST mode, kept until their mails have been composed
+    private final List<BuildNotification> unsent = new ArrayList<>();
+    // failed attempts at composing, e.g. the user lookup, retried with the mail backoff
+    private int composeAttempts;
+    private long composeRetryAt;
+
+    public BuildNotifier(@Value("${build.notifications.queue-capacity:500}") int queueCapacity) {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        notificationExecutor.submit(this::sendLoop);
+    }
+
+    /**
+     * Lets the sender send what is still pending, including DIGEST builds whose window has not
+     * closed yet, before the executor is stopped.
+     */
+    @PreDestroy
+    public void stop() {
+        stopping = true;
+        notificationExecutor.shutdown();
+        try {
+            if (!notificationExecutor.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
+                log.warn("Notification sender did not finish within {}s, pending notifications are lost", shutdownTimeoutSeconds);
+                notificationExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            notificationExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Queues a notification without blocking. When the queue is full the notification is dropped.
+     */
+    public void notify(BuildNotification notification) {
+        if (notification.getMode() == NotificationMode.OFF) {
+            return;
+        }
+        if (!queue.offer(notification)) {
+            log.warn("Notification queue full, dropping notification for build {}", notification.getBuildId());
+        }
+    }
+
+    private void sendLoop() {
+        List<BuildNotification> batch = new ArrayList<>(batchSize);
+        while (!stopping && !Thread.currentThread().isInterrupted()) {
+            try {
+                BuildNotification first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+                long now = System.currentTimeMillis();
+                accept(batch, now);
+                batch.clear();
+                List<PendingMail> outgoing = new ArrayList<>();
+                if (now >= composeRetryAt) {
+                    outgoing.addAll(compose(now, false));
+                }
+                outgoing.addAll(dueRetries(now));
+                if (!outgoing.isEmpty()) {
+                    send(outgoing);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Notification sender error: {}", e.getMessage(), e);
+            }
+        }
+        if (stopping) {
+            flushPending();
+        }
+    }
+
+    /**
+     * Sends everything still queued and every open digest at once, retries get one last attempt.
+     */
+    private void flushPending() {
+        try {
+            List<BuildNotification> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            long now = System.currentTimeMillis();
+            accept(remaining, now);
+            List<PendingMail> outgoing = new ArrayList<>(compose(now, true));
+            if (!unsent.isEmpty() || !digests.isEmpty()) {
+                log.error("Could not compose {} notifications and {} digests before shutdown, they are lost", unsent.size(), digests.size());
+            }
+            outgoing.addAll(retries);
+            retries.clear();
+            if (!outgoing.isEmpty()) {
+                log.info("Sending {} pending notifications before shutdown", outgoing.size());
+                send(outgoing);
+            }
+        } catch (Exception e) {
+            log.error("Could not send pending notifications on shutdown: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Files DIGEST builds under their project's open digest and keeps the rest for composing.
+     */
+    private void accept(List<BuildNotification> batch, long now) {
+        for (BuildNotification notification : batch) {
+            if (notification.getMode() == NotificationMode.DIGEST) {
+                digests.computeIfAbsent(notification.getProjectId(), id -> new ArrayList<>()).add(notification);
+                digestDueAt.putIfAbsent(notification.getProjectId(), now + TimeUnit.MINUTES.toMillis(digestMinutes));
+            } else {
+                unsent.add(notification);
+            }
+        }
+    }
+
+    /**
+     * Turns the unsent builds and the due digests into mails. They are only let go of once their
+     * mails are built; when composing fails they stay and are tried again after the backoff, up to
+     * max-attempts times.
+     */
+    private List<PendingMail> compose(long now, boolean allDigests) {
+        List<Long> dueProjects = digestDueAt.entrySet().stream()
+                .filter(entry -> allDigests || entry.getValue() <= now)
+                .map(Map.Entry::getKey)
+                .toList();
+        if (unsent.isEmpty() && dueProjects.isEmpty()) {
+            return List.of();
+        }
+        List<PendingMail> mails = List.of();
+        try {
+            mails = composeMails(unsent, dueProjects.stream().map(digests::get).toList());
+        } catch (RuntimeException e) {
+            composeAttempts++;
+            if (composeAttempts < maxAttempts) {
+                composeRetryAt = now + (retryBackoffMillis << (composeAttempts - 1));
+                log.warn("Could not compose notifications, retrying in {} ms: {}", composeRetryAt - now, e.getMessage());
+                return List.of();
+            }
+            log.error("Giving up on {} notifications and {} digests after {} attempts: {}", unsent.size(), dueProjects.size(), composeAttempts, e.getMessage(), e);
+        }
+        unsent.clear();
+        dueProjects.forEach(projectId -> {
+            digests.remove(projectId);
+            digestDueAt.remove(projectId);
+        });
+        composeAttempts = 0;
+        composeRetryAt = 0;
+        return mails;
+    }
+
+    private List<PendingMail> composeMails(List<BuildNotification> single, List<List<BuildNotification>> dueDigests) {
+        Set<String> userIds = new HashSet<>();
+        single.forEach(notification -> userIds.add(notification.getUserId()));
+        dueDigests.forEach(builds -> userIds.add(builds.get(0).getUserId()));
+        Map<String, String> emails = userRepository.findAllById(userIds).stream()
+                .filter(user -> user.getEmail() != null)
+                .collect(Collectors.toMap(User::getUserId, User::getEmail));
+
+        List<PendingMail> mails = new ArrayList<>();
+        for (BuildNotification notification : single) {
+            String recipient = emails.get(notification.getUserId());
+            if (recipient != null) {
+                mails.add(new PendingMail(MailObject.builder()
+                        .recipient(recipient)
+                        .subject(subject(notification))
+                        .msgBody(buildEmailBody(notification))
+                        .build()));
+            }
+        }
+        for (List<BuildNotification> builds : dueDigests) {
+            String recipient = emails.get(builds.get(0).getUserId());
+            if (recipient != null) {
+                mails.add(new PendingMail(MailObject.builder()
+                        .recipient(recipient)
+                        .subject("Build digest for " + builds.get(0).getProjectName() + ": " + builds.size() + " builds")
+                        .msgBody(digestEmailBody(builds))
+                        .build()));
+            }
+        }
+        return mails;
+    }
+
+    private List<PendingMail> dueRetries(long now) {
+        List<PendingMail> due = new ArrayList<>();
+        retries.removeIf(mail -> {
+            if (mail.nextAttemptAt > now) {
+                return false;
+            }
+            due.add(mail);
+            return true;
+        });
+        return due;
+    }
+
+    private void send(List<PendingMail> outgoing) {
+        NotificationSentEvent event = new NotificationSentEvent();
+        event.begin();
+        List<MailObject> failed = emailSendingService.sendEmails(outgoing.stream().map(mail -> mail.mail).toList());
+        if (event.shouldCommit()) {
+            event.mails = outgoing.size();
+            event.failed = failed.size();
+            event.commit();
+        }
+        if (failed.isEmpty()) {
+            return;
+        }
+        Set<MailObject> failedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        failedSet.addAll(failed);
+        long now = System.currentTimeMillis();
+        for (PendingMail mail : outgoing) {
+            if (!failedSet.contains(mail.mail)) {
+                continue;
+            }
+            mail.attempts++;
+            if (mail.attempts >= maxAttempts) {
+                log.error("Giving up on mail to {} after {} attempts", mail.mail.getRecipient(), mail.attempts);
+            } else {
+                mail.nextAttemptAt = now + (retryBackoffMillis << (mail.attempts - 1));
+                retries.add(mail);
+            }
+        }
+    }
+
+    private String subject(BuildNotification notification) {
+        return notification.getStatus() == BuildStatus.SUCCESS
+                ? "Build Success Notification"
+                : "Build Failure Notification";
+    }
+
+    private String buildEmailBody(BuildNotification notification) {
+        boolean success = notification.getStatus() == BuildStatus.SUCCESS;
+        String projectName = HtmlUtils.htmlEscape(notification.getProjectName());
+        String headline = success ? "Build Success!" : "Build Failed";
+        String summary = success
+                ? "Build #" + notification.getBuildId() + " of <b>" + projectName + "</b> completed without errors in " + Durations.formatDuration(notification.getDurationMillis()) + "."
+                : "Build #" + notification.getBuildId() + " of <b>" + projectName + "</b> failed after " + Durations.formatDuration(notification.getDurationMillis()) + ".";
+        return page(headline, success ? "#2563eb" : "#dc2626", summary,
+                "<h3 style=\"color:#1e293b;font-size:1rem;margin:0 0 8px 0;\">Latest Build Log:</h3>"
+                        + "<pre style=\"background:#f1f5f9;padding:12px;border-radius:6px;margin:0;overflow-x:auto;font-size:0.875rem;color:#334155;\">"
+                        + HtmlUtils.htmlEscape(String.join("\n", notification.getTail()))
+                        + "</pre>");
+    }
+
+    private String digestEmailBody(List<BuildNotification> builds) {
+        String projectName = HtmlUtils.htmlEscape(builds.get(0).getProjectName());
+        long failures = builds.stream().filter(build -> build.getStatus() != BuildStatus.SUCCESS).count();
+        StringBuilder rows = new StringBuilder();
+        for (BuildNotification build : builds) {
+            rows.append("<tr><td style=\"padding:4px 8px;\">#").append(build.getBuildId())
+                    .append("</td><td style=\"padding:4px 8px;\">").append(build.getStatus())
+                    .append("</td><td style=\"padding:4px 8px;\">").append(Durations.formatDuration(build.getDurationMillis()))
+                    .append("</td><td style=\"padding:4px 8px;\">").append(build.getFinishedAt())
+                    .append("</td></tr>");
+        }
+        BuildNotification latest = builds.get(builds.size() - 1);
+        return page("Build Digest", failures == 0 ? "#2563eb" : "#dc2626",
+                builds.size() + " builds of <b>" + projectName + "</b> finished, " + failures + " did not succeed.",
+                "<table style=\"width:100%;font-size:0.875rem;color:#334155;margin-bottom:16px;\">" + rows + "</table>"
+                        + "<h3 style=\"color:#1e293b;font-size:1rem;margin:0 0 8px 0;\">Log of build #" + latest.getBuildId() + ":</h3>"
+                        + "<pre style=\"background:#f1f5f9;padding:12px;border-radius:6px;margin:0;overflow-x:auto;font-size:0.875rem;color:#334155;\">"
+                        + HtmlUtils.htmlEscape(String.join("\n", latest.getTail()))
+                        + "</pre>");
+    }
+
+    private String page(String headline, String color, String summary, String details) {
+        return """
+                <!DOCTYPE html>
+                <html lang="en">
+                <head>
+                  <meta charset="UTF-8">
+                  <title>%1$s</title>
+                </head>
+                <body style="margin:0;padding:0;background:#f4f8fb;font-family:'Segoe UI',Arial,sans-serif;">
+                  <table width="100%%" bgcolor="#f4f8fb" cellpadding="0" cellspacing="0" style="padding:40px 0;">
+                    <tr>
+                      <td align="center">
+                        <table width="480" cellpadding="0" cellspacing="0" style="background:#fff;border-radius:18px;box-shadow:0 8px 32px rgba(44,62,80,0.10);overflow:hidden;">
+                          <tr>
+                            <td style="background:%2$s;padding:32px 0;text-align:center;">
+                              <h1 style="color:#fff;font-size:2rem;font-weight:700;margin:0;letter-spacing:-1px;">%1$s</h1>
+                            </td>
+                          </tr>
+                          <tr>
+                            <td style="padding:32px 32px 24px 32px;text-align:center;">
+                              <p style="color:#334155;font-size:1rem;line-height:1.6;margin:0 0 24px 0;">%3$s</p>
+                              <div style="background:#f8fafc;border-radius:8px;padding:16px;text-align:left;margin-top:24px;">%4$s</div>
+                            </td>
+                          </tr>
+                          <tr>
+                            <td style="padding:24px 32px 32px 32px;text-align:center;">
+                              <p style="color:#64748b;font-size:0.95rem;margin:0;">
+                                &copy; 2025 CI/CD by Ankit Chauhan &mdash; Modern continuous integration and deployment
+                              </p>
+                            </td>
+                          </tr>
+                        </table>
+                      </td>
+                    </tr>
+                  </table>
+                </body>
+                </html>
+                """.formatted(headline, color, summary, details);
+    }
+
+    private static class PendingMail {
+        private final MailObject mail;
+        private int attempts;
+        private long nextAttemptAt;
+
+        PendingMail(MailObject mail) {
+            this.mail = mail;
+        }
+    }
+}
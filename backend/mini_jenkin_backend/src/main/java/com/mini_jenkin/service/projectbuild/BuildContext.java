@@ -0,0 +1,62 @@
+package com.mini_jenkin.service.projectbuild;
+
+import com.mini_jenkin.service.trace.BuildTrace;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * State of one running build that other threads need to reach, mainly to cancel it.
+ */
+@Slf4j
+@Getter
+public class BuildContext {
+
+    private final Long buildId;
+    private final Long projectId;
+    // the branch being built, null for the remote's default branch
+    private final String branch;
+    private final LogTailBuffer tail;
+    private final BuildTrace trace = new BuildTrace();
+    private volatile BuildOutputWriter output;
+    private volatile Process process;
+    private volatile boolean cancelled;
+    private volatile String cancelReason;
+
+    public BuildContext(Long buildId, Long projectId, String branch, int tailLines) {
+        this.buildId = buildId;
+        this.projectId = projectId;
+        this.branch = branch;
+        this.tail = new LogTailBuffer(tailLines);
+    }
+
+    public void setOutput(BuildOutputWriter output) {
+        this.output = output;
+    }
+
+    public void attach(Process process) {
+        this.process = process;
+        if (cancelled) {
+            destroyProcessTree(process);
+        }
+    }
+
+    public void detach() {
+        this.process = null;
+    }
+
+    public void cancel(String reason) {
+        this.cancelReason = reason;
+        this.cancelled = true;
+        Process running = process;
+        if (running != null) {
+            destroyProcessTree(running);
+        }
+        log.info("Build {} cancelled: {}", buildId, reason);
+    }
+
+    private static void destroyProcessTree(Process process) {
+        // children first, a dead shell would otherwise orphan them
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
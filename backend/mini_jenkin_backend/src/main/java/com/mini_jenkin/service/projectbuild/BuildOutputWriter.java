@@ -0,0 +1,82 @@
+package com.mini_jenkin.service.projectbuild;
+
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.service.logstore.LiveBuildLogs;
+import com.mini_jenkin.service.logstore.SegmentedLogWriter;
+import com.mini_jenkin.service.trace.BuildTrace;
+
+import java.io.IOException;
+
+/**
+ * Receives build output line by line, keeps the tail in the build's ring buffer, appends every
+ * line to the build's log in the log store and hands it to live followers of the build.
+ */
+public class BuildOutputWriter implements AutoCloseable {
+
+    private final Long buildId;
+    private final SegmentedLogWriter logWriter;
+    private final LiveBuildLogs liveBuildLogs;
+    private final LogTailBuffer tail;
+    private final BuildTrace trace;
+    private final long flushIntervalMillis;
+    private long lastFlush = System.currentTimeMillis();
+
+    public BuildOutputWriter(Long buildId, SegmentedLogWriter logWriter, LiveBuildLogs liveBuildLogs, LogTailBuffer tail,
+                             BuildTrace trace, long flushIntervalMillis) {
+        this.buildId = buildId;
+        this.logWriter = logWriter;
+        this.liveBuildLogs = liveBuildLogs;
+        this.tail = tail;
+        this.trace = trace;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Appends one line of output. Text with embedded line breaks, such as an exception message, is
+     * written as one line per break so the log's line numbers match what readers see.
+     */
+    public void line(String text) {
+        if (text != null && (text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0)) {
+            for (String line : text.split("\\r\\n|\\r|\\n", -1)) {
+                append(line);
+            }
+        } else {
+            append(String.valueOf(text));
+        }
+    }
+
+    private void append(String line) {
+        tail.add(line);
+        try {
+            long lineNo = logWriter.appendLine(line);
+            liveBuildLogs.publish(buildId, lineNo, line);
+            if (System.currentTimeMillis() - lastFlush >= flushIntervalMillis) {
+                flush();
+            }
+        } catch (IOException e) {
+            throw new GeneralException("Could not write build output: " + e.getMessage());
+        }
+    }
+
+    public void flush() {
+        lastFlush = System.currentTimeMillis();
+        try (BuildTrace.Span span = trace.start("flush output", "persistence", BuildTrace.LANE_OUTPUT)) {
+            span.attr("totalLines", logWriter.flush());
+        } catch (IOException e) {
+            throw new GeneralException("Could not flush build output: " + e.getMessage());
+        }
+    }
+
+    public long linesWritten() {
+        return logWriter.getLines();
+    }
+
+    public long bytesWritten() {
+        return logWriter.getBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        logWriter.close();
+    }
+}
@@ -0,0 +1,272 @@
+package com.mini_jenkin.service.projectbuild;
+
+import com.mini_jenkin.entity.BuildTrigger;
+import com.mini_jenkin.entity.ConcurrencyPolicy;
+import com.mini_jenkin.exception.BuildQueueFullException;
+import com.mini_jenkin.payload.BuildQueuePosition;
+import com.mini_jenkin.payload.QueueRejectionPolicy;
+import com.mini_jenkin.payload.QueuedBuild;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index over the QUEUED rows of the build table. The database stays the source of truth,
+ * this only decides dispatch order: priority lane first, then arrival order.
+ */
+@Component
+@Slf4j
+public class BuildQueue {
+
+    private static final Comparator<QueuedBuild> DISPATCH_ORDER = Comparator
+            .comparingInt(QueuedBuild::getPriority)
+            .thenComparing(QueuedBuild::getBuildId);
+
+    @Value("${build.queue.capacity:100}")
+    private int capacity;
+
+    @Value("${build.queue.rejection-policy:REJECT}")
+    private QueueRejectionPolicy rejectionPolicy;
+
+    @Value("${build.workers:5}")
+    private int workers;
+
+    private final TreeSet<QueuedBuild> queue = new TreeSet<>(DISPATCH_ORDER);
+    private final Map<Long, QueuedBuild> index = new HashMap<>();
+    // queued webhook builds by project and branch, the target new pushes are folded into
+    private final Map<String, QueuedBuild> webhookIndex = new HashMap<>();
+    // builds taken by a worker and not yet released, per project
+    private final Map<Long, Integer> runningPerProject = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+
+    // exponentially weighted moving average of recent build run times
+    private volatile double averageRunMillis = 0;
+
+    /**
+     * Adds a build to the queue. Returns the entry evicted to make room for it (DROP_LOWEST policy),
+     * or null if nothing was evicted. Throws BuildQueueFullException when the build is refused.
+     */
+    public QueuedBuild offer(QueuedBuild entry) {
+        lock.lock();
+        try {
+            QueuedBuild evicted = null;
+            if (queue.size() >= capacity) {
+                QueuedBuild lowest = queue.last();
+                if (rejectionPolicy == QueueRejectionPolicy.DROP_LOWEST && entry.getPriority() < lowest.getPriority()) {
+                    removeEntry(lowest);
+                    evicted = lowest;
+                    log.warn("Build queue full, evicted build {} for build {}", lowest.getBuildId(), entry.getBuildId());
+                } else {
+                    throw new BuildQueueFullException("Build queue is at capacity (" + capacity + "), build " + entry.getBuildId() + " rejected");
+                }
+            }
+            addEntry(entry);
+            return evicted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Re-adds a build recovered from the database on startup, ignoring capacity.
+     */
+    public void restore(QueuedBuild entry) {
+        lock.lock();
+        try {
+            addEntry(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Folds a new push into the webhook build already queued for the same project and branch:
+     * the waiting build switches to the newer commit and its debounce window restarts, but never
+     * past maxDelayMillis after the build was first queued so a steady stream of pushes cannot starve it.
+     * Returns the updated entry, or null if there is nothing to fold into.
+     */
+    public QueuedBuild coalesce(Long projectId, String branch, String commitSha, long debounceMillis, long maxDelayMillis) {
+        lock.lock();
+        try {
+            QueuedBuild entry = webhookIndex.get(webhookKey(projectId, branch));
+            if (entry == null) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            long queuedAt = entry.getQueuedAt() == null ? now
+                    : entry.getQueuedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            entry.setCommitSha(commitSha);
+            entry.setNotBeforeMillis(Math.min(now + debounceMillis, queuedAt + maxDelayMillis));
+            return entry;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a build is eligible to run: highest priority first, skipping builds still in their
+     * debounce window and builds of projects that already have a build running (unless the project
+     * allows parallel builds). The caller must hand the build back with release() once it is done.
+     */
+    public QueuedBuild take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long nextEligibleAt = Long.MAX_VALUE;
+                for (QueuedBuild entry : queue) {
+                    if (isBlockedByRunningBuild(entry)) {
+                        continue;
+                    }
+                    if (entry.getNotBeforeMillis() <= now) {
+                        removeEntry(entry);
+                        runningPerProject.merge(entry.getProjectId(), 1, Integer::sum);
+                        return entry;
+                    }
+                    nextEligibleAt = Math.min(nextEligibleAt, entry.getNotBeforeMillis());
+                }
+                if (nextEligibleAt == Long.MAX_VALUE) {
+                    notEmpty.await();
+                } else {
+                    notEmpty.await(nextEligibleAt - now, TimeUnit.MILLISECONDS);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(QueuedBuild entry) {
+        lock.lock();
+        try {
+            runningPerProject.computeIfPresent(entry.getProjectId(), (projectId, count) -> count > 1 ? count - 1 : null);
+            // a serialized project may have builds waiting on this one
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes the waiting builds of a project and branch queued before the given build and returns them.
+     */
+    public List<QueuedBuild> removeSuperseded(Long projectId, String branch, Long newerBuildId) {
+        List<QueuedBuild> superseded = new ArrayList<>();
+        lock.lock();
+        try {
+            for (QueuedBuild entry : queue) {
+                if (entry.getProjectId().equals(projectId) && Objects.equals(entry.getBranch(), branch) && entry.getBuildId() < newerBuildId) {
+                    superseded.add(entry);
+                }
+            }
+            superseded.forEach(this::removeEntry);
+        } finally {
+            lock.unlock();
+        }
+        return superseded;
+    }
+
+    public boolean remove(Long buildId) {
+        lock.lock();
+        try {
+            QueuedBuild entry = index.get(buildId);
+            if (entry == null) {
+                return false;
+            }
+            removeEntry(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<BuildQueuePosition> snapshot() {
+        List<BuildQueuePosition> positions = new ArrayList<>();
+        lock.lock();
+        try {
+            int position = 1;
+            for (QueuedBuild entry : queue) {
+                positions.add(toPosition(entry, position++));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return positions;
+    }
+
+    public Optional<BuildQueuePosition> position(Long buildId) {
+        lock.lock();
+        try {
+            QueuedBuild entry = index.get(buildId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            return Optional.of(toPosition(entry, queue.headSet(entry).size() + 1));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void recordRunTime(long millis) {
+        double current = averageRunMillis;
+        averageRunMillis = current == 0 ? millis : current * 0.8 + millis * 0.2;
+    }
+
+    private void addEntry(QueuedBuild entry) {
+        if (index.putIfAbsent(entry.getBuildId(), entry) == null) {
+            queue.add(entry);
+            if (entry.getTrigger() == BuildTrigger.WEBHOOK) {
+                webhookIndex.putIfAbsent(webhookKey(entry.getProjectId(), entry.getBranch()), entry);
+            }
+            notEmpty.signal();
+        }
+    }
+
+    private void removeEntry(QueuedBuild entry) {
+        queue.remove(entry);
+        index.remove(entry.getBuildId());
+        webhookIndex.remove(webhookKey(entry.getProjectId(), entry.getBranch()), entry);
+    }
+
+    private boolean isBlockedByRunningBuild(QueuedBuild entry) {
+        return entry.getConcurrencyPolicy() != ConcurrencyPolicy.PARALLEL
+                && runningPerProject.containsKey(entry.getProjectId());
+    }
+
+    private String webhookKey(Long projectId, String branch) {
+        return projectId + ":" + branch;
+    }
+
+    private BuildQueuePosition toPosition(QueuedBuild entry, int position) {
+        long waited = entry.getQueuedAt() == null ? 0 : Duration.between(entry.getQueuedAt(), LocalDateTime.now()).toMillis();
+        // builds ahead of this one are spread over all workers
+        long rounds = (position - 1) / Math.max(workers, 1);
+        return BuildQueuePosition.builder()
+                .buildId(entry.getBuildId())
+                .projectId(entry.getProjectId())
+                .trigger(entry.getTrigger())
+                .position(position)
+                .queuedAt(entry.getQueuedAt())
+                .waitedMillis(waited)
+                .estimatedWaitMillis((long) (rounds * averageRunMillis))
+                .build();
+    }
+}
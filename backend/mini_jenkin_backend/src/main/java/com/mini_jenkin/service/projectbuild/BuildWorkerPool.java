@@ -0,0 +1,119 @@
+package com.mini_jenkin.service.projectbuild;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.payload.QueuedBuild;
+import com.mini_jenkin.repository.BuildRepository;
+import com.mini_jenkin.repository.ProjectRepository;
+import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed set of workers draining the BuildQueue. Builds left QUEUED or RUNNING by a previous
+ * process are put back on the queue before the workers start.
+ */
+@Component
+@Slf4j
+public class BuildWorkerPool {
+
+    @Value("${build.workers:5}")
+    private int workers;
+
+    @Autowired
+    @Qualifier("buildWorkerExecutor")
+    private ExecutorService buildWorkerExecutor;
+
+    @Autowired
+    private BuildQueue buildQueue;
+
+    @Autowired
+    private BuildRepository buildRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private ProjectExecutionServiceInterface projectExecutionService;
+
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    // after the startup listeners that prepare log tables and workspaces
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void start() {
+        recoverQueuedBuilds();
+        for (int i = 0; i < workers; i++) {
+            buildWorkerExecutor.submit(this::workLoop);
+        }
+        log.info("Started {} build workers, {} builds waiting in queue", workers, buildQueue.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        buildWorkerExecutor.shutdownNow();
+    }
+
+    public int getActiveWorkers() {
+        return activeWorkers.get();
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    private void recoverQueuedBuilds() {
+        List<Build> interrupted = buildRepository.findAllByStatus(BuildStatus.RUNNING);
+        for (Build build : interrupted) {
+            log.warn("Re-queueing build {} interrupted by restart", build.getId());
+            build.setStatus(BuildStatus.QUEUED);
+            build.setStartedAt(null);
+        }
+        buildRepository.saveAll(interrupted);
+
+        for (Build build : buildRepository.findAllByStatusOrderByIdAsc(BuildStatus.QUEUED)) {
+            QueuedBuild entry = QueuedBuild.from(build);
+            projectRepository.findById(build.getProjectId())
+                    .map(Project::getProjectConfig)
+                    .ifPresent(config -> entry.setConcurrencyPolicy(config.getConcurrencyPolicy()));
+            buildQueue.restore(entry);
+        }
+    }
+
+    private void workLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            QueuedBuild next;
+            try {
+                next = buildQueue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            activeWorkers.incrementAndGet();
+            long start = System.currentTimeMillis();
+            try {
+                projectExecutionService.runBuild(next.getBuildId());
+            } catch (Exception e) {
+                log.error("Build {} aborted: {}", next.getBuildId(), e.getMessage(), e);
+            } finally {
+                buildQueue.release(next);
+                activeWorkers.decrementAndGet();
+                buildQueue.recordRunTime(System.currentTimeMillis() - start);
+            }
+        }
+    }
+}
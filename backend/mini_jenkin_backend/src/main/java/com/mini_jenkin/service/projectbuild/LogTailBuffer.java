@@ -0,0 +1,39 @@
+package com.mini_jenkin.service.projectbuild;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer holding the last lines of build output.
+ */
+public class LogTailBuffer {
+
+    private final String[] lines;
+    private int next;
+    private int size;
+
+    public LogTailBuffer(int capacity) {
+        this.lines = new String[Math.max(capacity, 1)];
+    }
+
+    public synchronized void add(String line) {
+        lines[next] = line;
+        next = (next + 1) % lines.length;
+        if (size < lines.length) {
+            size++;
+        }
+    }
+
+    public synchronized List<String> lines() {
+        List<String> result = new ArrayList<>(size);
+        int start = (next - size + lines.length) % lines.length;
+        for (int i = 0; i < size; i++) {
+            result.add(lines[(start + i) % lines.length]);
+        }
+        return result;
+    }
+
+    public String asText() {
+        return String.join("\n", lines());
+    }
+}
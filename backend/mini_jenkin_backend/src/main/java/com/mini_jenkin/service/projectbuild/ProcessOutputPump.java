@@ -0,0 +1,50 @@
+package com.mini_jenkin.service.projectbuild;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Splits a process output stream into lines without ever holding more than one line in memory.
+ * Lines longer than maxLineLength are handed over in pieces, so a process that never prints a
+ * newline cannot grow the buffer.
+ */
+public final class ProcessOutputPump {
+
+    private ProcessOutputPump() {
+    }
+
+    public static long pump(InputStream in, int maxLineLength, Consumer<String> lineConsumer) throws IOException {
+        char[] buffer = new char[8192];
+        StringBuilder line = new StringBuilder();
+        long chars = 0;
+        try (Reader reader = new InputStreamReader(in)) {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                chars += read;
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n') {
+                        emit(line, lineConsumer);
+                    } else if (c != '\r') {
+                        line.append(c);
+                        if (line.length() >= maxLineLength) {
+                            emit(line, lineConsumer);
+                        }
+                    }
+                }
+            }
+        }
+        if (line.length() > 0) {
+            emit(line, lineConsumer);
+        }
+        return chars;
+    }
+
+    private static void emit(StringBuilder line, Consumer<String> lineConsumer) {
+        lineConsumer.accept(line.toString());
+        line.setLength(0);
+    }
+}
@@ -0,0 +1,42 @@
+package com.mini_jenkin.service.projectbuild;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class RunningBuilds {
+
+    @Value("${build.output.tail-lines:200}")
+    private int tailLines;
+
+    private final Map<Long, BuildContext> builds = new ConcurrentHashMap<>();
+
+    public BuildContext register(Long buildId, Long projectId, String branch) {
+        BuildContext context = new BuildContext(buildId, projectId, branch, tailLines);
+        builds.put(buildId, context);
+        return context;
+    }
+
+    public void unregister(Long buildId) {
+        builds.remove(buildId);
+    }
+
+    public Optional<BuildContext> get(Long buildId) {
+        return Optional.ofNullable(builds.get(buildId));
+    }
+
+    public List<BuildContext> forProject(Long projectId) {
+        return builds.values().stream()
+                .filter(context -> context.getProjectId().equals(projectId))
+                .toList();
+    }
+
+    public int size() {
+        return builds.size();
+    }
+}
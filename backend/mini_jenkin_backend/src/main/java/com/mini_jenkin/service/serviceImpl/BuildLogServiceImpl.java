@@ -2,10 +2,15 @@ package com.mini_jenkin.service.serviceImpl;
 
 import com.mini_jenkin.entity.BuildLogs;
 import com.mini_jenkin.exception.ResourceNotFoundException;
+import com.mini_jenkin.payload.BuildLogSummary;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.HistoryCursor;
+import com.mini_jenkin.payload.HistoryQuery;
 import com.mini_jenkin.repository.BuildLogsRepository;
 import com.mini_jenkin.service.serviceInterface.BuildLogServiceInterface;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -27,12 +32,12 @@ public class BuildLogServiceImpl implements BuildLogServiceInterface {
     }
 
     @Override
-    public List<BuildLogs> getAllBuildLogs(Long projectId) {
-        log.info("Fetching all build logs for project with ID: {}", projectId);
-
-        List<BuildLogs> buildLogs = buildLogsRepository.findAllByProjectId(projectId);
-        log.info("BuildLogs length : {}", buildLogs.size());
-        return buildLogs;
+    public CursorPage<BuildLogSummary> getBuildHistory(Long projectId, HistoryQuery query) {
+        HistoryCursor cursor = HistoryCursor.decode(query.getCursor());
+        int pageSize = query.pageSize();
+        List<BuildLogSummary> rows = buildLogsRepository.findHistoryPage(projectId, query.getStatus(),
+                query.fromOrEarliest(), query.toOrLatest(), cursor.time(), cursor.id(), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, row -> new HistoryCursor(row.getTimestamp(), row.getId()));
     }
 
     @Override
@@ -1,39 +1,90 @@
 package com.mini_jenkin.service.serviceImpl;
 
 import com.mini_jenkin.payload.MailObject;
+import com.mini_jenkin.service.metrics.BuildMetrics;
 import com.mini_jenkin.service.serviceInterface.EmailSendingServiceInterface;
+import io.micrometer.core.instrument.Timer;
+import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
+@Slf4j
 public class EmailSendingServiceImpl implements EmailSendingServiceInterface {
 
     @Autowired
     private JavaMailSender javaMailSender;
 
+    @Autowired
+    private BuildMetrics buildMetrics;
+
     @Value("${spring.mail.username}")
     private String sender;
 
     @Override
     public String sendEmail(MailObject mailObject) {
         try {
-            MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
-
-            helper.setFrom(sender);
-            helper.setTo(mailObject.getRecipient());
-            helper.setSubject(mailObject.getSubject());
-            helper.setText(mailObject.getMsgBody(), true); // Set second parameter to true for HTML
-
-            javaMailSender.send(mimeMessage);
+            javaMailSender.send(toMimeMessage(mailObject));
             return "Email sent successfully to " + mailObject.getRecipient();
         } catch (Exception e) {
             e.printStackTrace();
             return "Error sending email: " + e.getMessage();
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public List<MailObject> sendEmails(List<MailObject> mailObjects) {
+        List<MailObject> failed = new ArrayList<>();
+        Map<MimeMessage, MailObject> messages = new IdentityHashMap<>();
+        for (MailObject mailObject : mailObjects) {
+            try {
+                messages.put(toMimeMessage(mailObject), mailObject);
+            } catch (MessagingException e) {
+                log.error("Could not build mail to {}: {}", mailObject.getRecipient(), e.getMessage());
+                failed.add(mailObject);
+            }
+        }
+        if (messages.isEmpty()) {
+            return failed;
+        }
+        Timer.Sample sample = buildMetrics.start();
+        try {
+            javaMailSender.send(messages.keySet().toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            if (e.getFailedMessages().isEmpty()) {
+                failed.addAll(messages.values());
+            } else {
+                e.getFailedMessages().keySet().forEach(message -> failed.add(messages.get(message)));
+            }
+            log.warn("{} of {} mails not sent: {}", failed.size(), mailObjects.size(), e.getMessage());
+        } catch (MailException e) {
+            failed.addAll(messages.values());
+            log.warn("Mail batch of {} not sent: {}", mailObjects.size(), e.getMessage());
+        }
+        buildMetrics.recordMailBatch(sample, mailObjects.size() - failed.size(), failed.size());
+        return failed;
+    }
+
+    private MimeMessage toMimeMessage(MailObject mailObject) throws MessagingException {
+        MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
+
+        helper.setFrom(sender);
+        helper.setTo(mailObject.getRecipient());
+        helper.setSubject(mailObject.getSubject());
+        helper.setText(mailObject.getMsgBody(), true); // Set second parameter to true for HTML
+        return mimeMessage;
+    }
+}
@@ -1,36 +1,65 @@
     package com.mini_jenkin.service.serviceImpl;
 
     import com.mini_jenkin.entity.*;
-    import com.mini_jenkin.exception.GeneralException;
+    import com.mini_jenkin.exception.BuildCancelledException;
+    import com.mini_jenkin.exception.BuildQueueFullException;
     import com.mini_jenkin.exception.ResourceNotFoundException;
-    import com.mini_jenkin.payload.MailObject;
+    import com.mini_jenkin.payload.BuildNotification;
+    import com.mini_jenkin.payload.BuildQueuePosition;
     import com.mini_jenkin.payload.ProjectStatus;
+    import com.mini_jenkin.payload.ProjectUpdateType;
+    import com.mini_jenkin.payload.QueuedBuild;
+    import com.mini_jenkin.payload.TraceFormat;
     import com.mini_jenkin.repository.BuildLogsRepository;
+    import com.mini_jenkin.repository.BuildRepository;
     import com.mini_jenkin.repository.ProjectConfigRepository;
     import com.mini_jenkin.repository.ProjectRepository;
-    import com.mini_jenkin.repository.UserRepository;
+    import com.mini_jenkin.repository.StageExecutionRepository;
     import com.mini_jenkin.scheduler.ExecuteScheduledJob;
+    import com.mini_jenkin.service.events.ProjectEventBus;
+    import com.mini_jenkin.service.logstore.BuildLogStore;
+    import com.mini_jenkin.service.logstore.LiveBuildLogs;
+    import com.mini_jenkin.service.logstore.LogCompactor;
+    import com.mini_jenkin.service.metrics.BuildMetrics;
+    import com.mini_jenkin.service.metrics.jfr.BuildFinishedEvent;
+    import com.mini_jenkin.service.metrics.jfr.BuildQueuedEvent;
+    import com.mini_jenkin.service.metrics.jfr.BuildStartedEvent;
+    import com.mini_jenkin.service.metrics.jfr.StageExecutedEvent;
+    import com.mini_jenkin.service.notification.BuildNotifier;
+    import com.mini_jenkin.service.projectbuild.BuildContext;
+    import com.mini_jenkin.service.projectbuild.BuildOutputWriter;
+    import com.mini_jenkin.service.projectbuild.ProcessOutputPump;
+    import com.mini_jenkin.service.projectbuild.BuildQueue;
+    import com.mini_jenkin.service.projectbuild.RunningBuilds;
+    import com.mini_jenkin.service.stats.BuildStatsRollup;
+    import com.mini_jenkin.service.trace.BuildTrace;
+    import com.mini_jenkin.service.trace.BuildTraceService;
+    import com.mini_jenkin.service.trace.ProcessSampler;
+    import com.mini_jenkin.service.workspace.RepositoryPrefetcher;
+    import com.mini_jenkin.service.workspace.WorkspaceManager;
     import com.mini_jenkin.service.serviceInterface.BuildLogServiceInterface;
-    import com.mini_jenkin.service.serviceInterface.EmailSendingServiceInterface;
     import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
     import com.mini_jenkin.service.serviceInterface.ProjectLogServiceInterface;
-    import com.mini_jenkin.utility.CloneStage;
+    import com.mini_jenkin.utility.Durations;
     import jakarta.annotation.PostConstruct;
     import jakarta.transaction.Transactional;
     import lombok.extern.slf4j.Slf4j;
-    import org.eclipse.jgit.api.Git;
     import org.quartz.*;
     import org.springframework.beans.factory.annotation.Autowired;
     import org.springframework.beans.factory.annotation.Value;
     import org.springframework.stereotype.Service;
 
-    import java.io.BufferedReader;
     import java.io.File;
-    import java.io.InputStreamReader;
-    import java.nio.file.Files;
+    import java.time.Duration;
     import java.time.LocalDateTime;
+    import java.util.ArrayList;
     import java.util.Date;
-    import java.util.concurrent.ExecutorService;
+    import java.util.List;
+    import java.util.Map;
+    import java.util.Objects;
+    import java.util.Set;
+    import java.util.concurrent.ConcurrentHashMap;
+    import java.util.concurrent.ScheduledFuture;
 
     @Service
     @Slf4j
@@ -40,6 +69,10 @@
         private String defaultRepoPath;
         @Autowired
         private ProjectRepository projectRepository;
+        @Autowired
+        private RepositoryPrefetcher repositoryPrefetcher;
+        @Autowired
+        private WorkspaceManager workspaceManager;
 
         @Autowired
         private ProjectLogServiceInterface projectLogService;
@@ -47,8 +80,18 @@
         private BuildLogServiceInterface buildLogService;
         @Autowired
         private BuildLogsRepository buildLogsRepository;
-    @Autowired
-    private CloneStage cloneStage;
+        @Autowired
+        private BuildRepository buildRepository;
+        @Autowired
+        private StageExecutionRepository stageExecutionRepository;
+        @Autowired
+        private BuildStatsRollup buildStatsRollup;
+        @Autowired
+        private BuildMetrics buildMetrics;
+        @Autowired
+        private BuildTraceService buildTraceService;
+        @Autowired
+        private ProcessSampler processSampler;
 
         @Autowired
         private Scheduler scheduler;
@@ -56,16 +99,46 @@
         @PostConstruct
         public void init() {
             createDirectoryIfNotExists();
+            for (int i = 0; i < webhookLocks.length; i++) {
+                webhookLocks[i] = new Object();
+            }
         }
 
         @Autowired
-        private ExecutorService executorService;
-
+        private BuildQueue buildQueue;
+        @Autowired
+        private RunningBuilds runningBuilds;
+        @Autowired
+        private BuildLogStore buildLogStore;
         @Autowired
-        private UserRepository userRepository;
+        private LiveBuildLogs liveBuildLogs;
+        @Autowired
+        private ProjectEventBus projectEventBus;
+        @Autowired
+        private LogCompactor logCompactor;
+
+        @Value("${build.webhook.debounce-millis:10000}")
+        private long webhookDebounceMillis;
+        @Value("${build.webhook.max-delay-millis:60000}")
+        private long webhookMaxDelayMillis;
+
+        @Value("${build.output.max-line-length:2000}")
+        private int outputMaxLineLength;
+        @Value("${build.output.flush-interval-millis:1000}")
+        private long outputFlushMillis;
+
+        // pushes are serialized per project and branch over a fixed set of locks, so the set does not grow with branches
+        private final Object[] webhookLocks = new Object[64];
+        // build numbers are handed out one enqueue at a time per project
+        private final Map<Long, Object> buildNumberLocks = new ConcurrentHashMap<>();
+        // projects being deleted, they take no new builds
+        private final Set<Long> closedProjects = ConcurrentHashMap.newKeySet();
 
         @Autowired
-        private EmailSendingServiceInterface emailSendingService;
+        private BuildNotifier buildNotifier;
+
+        @Value("${build.notifications.tail-lines:50}")
+        private int notificationTailLines;
 
         @Autowired
         private ProjectConfigRepository projectConfigRepository;
@@ -81,68 +154,485 @@
         }
 
         @Override
-        public Boolean executeProject(Long projectId) throws Exception {
-            return executorService.submit(() -> {
-                if (projectId == null) {
-                    throw new ResourceNotFoundException("Invalid project id..");
+        public Build executeProject(Long projectId, BuildTrigger trigger) {
+            Project project = findExecutableProject(projectId);
+            return enqueue(project, trigger, null, null, 0);
+        }
+
+        @Override
+        /**
+         * Queues a build of a pushed branch, or folds the push into the one already queued. A project
+         * with a branch configured builds only pushes to that branch and returns null for others;
+         * without one, a push to any branch builds that branch.
+         */
+        public Build executeWebhookPush(Long projectId, String branch, String commitSha) {
+            Project project = findExecutableProject(projectId);
+            String configured = branchOf(project, null);
+            if (branch != null && configured != null && !configured.equals(branch)) {
+                log.info("Ignored push {} on {}, project {} builds {}", commitSha, branch, projectId, configured);
+                return null;
+            }
+            branch = branchOf(project, branch);
+            // runs during the debounce window, so the build finds the pushed objects already local
+            repositoryPrefetcher.prefetch(project, branch, commitSha);
+            String key = projectId + ":" + branch;
+            // serialize pushes for the same project and branch so two of them cannot both miss the queued build
+            synchronized (webhookLocks[Math.floorMod(key.hashCode(), webhookLocks.length)]) {
+                QueuedBuild coalesced = buildQueue.coalesce(projectId, branch, commitSha, webhookDebounceMillis, webhookMaxDelayMillis);
+                // a worker may have taken the build meanwhile, the row only changes while it is still QUEUED
+                if (coalesced != null && buildRepository.coalescePush(coalesced.getBuildId(), commitSha) > 0) {
+                    log.info("Coalesced push {} on {} into queued build {}", commitSha, branch, coalesced.getBuildId());
+                    return getBuild(coalesced.getBuildId());
                 }
-                Project project = projectRepository.findById(projectId).orElseThrow(() -> new ResourceNotFoundException("Invalid project id.."));
-                ProjectConfig projectConfig = project.getProjectConfig();
-                PipelineConfig pipelineConfig = projectConfig.getProject().getPipelineConfig();
-                if (pipelineConfig == null) {
-                    throw new ResourceNotFoundException("Pipeline configuration not found for project id: " + projectId);
+                return enqueue(project, BuildTrigger.WEBHOOK, branch, commitSha, System.currentTimeMillis() + webhookDebounceMillis);
+            }
+        }
+
+        private Project findExecutableProject(Long projectId) {
+            if (projectId == null) {
+                throw new ResourceNotFoundException("Invalid project id..");
+            }
+            Project project = projectRepository.findById(projectId).orElseThrow(() -> new ResourceNotFoundException("Invalid project id.."));
+            checkOpen(projectId);
+            if (project.getPipelineConfig() == null) {
+                throw new ResourceNotFoundException("Pipeline configuration not found for project id: " + projectId);
+            }
+            return project;
+        }
+
+        private Build enqueue(Project project, BuildTrigger trigger, String branch, String commitSha, long notBeforeMillis) {
+            // recorded as resolved now, so builds of the same branch can be told apart from others
+            branch = branchOf(project, branch);
+            Build build;
+            synchronized (buildNumberLocks.computeIfAbsent(project.getProjectId(), id -> new Object())) {
+                // checked under the lock closeProject takes, so no build is saved after the project was closed
+                checkOpen(project.getProjectId());
+                build = buildRepository.save(Build.builder()
+                        .projectId(project.getProjectId())
+                        .buildNumber(buildRepository.findLastBuildNumber(project.getProjectId()) + 1)
+                        .status(BuildStatus.QUEUED)
+                        .trigger(trigger)
+                        .priority(trigger.getPriority())
+                        .branch(branch)
+                        .commitSha(commitSha)
+                        .coalescedCount(0)
+                        .queuedAt(LocalDateTime.now())
+                        .build());
+            }
+
+            BuildQueuedEvent queuedEvent = new BuildQueuedEvent();
+            if (queuedEvent.isEnabled()) {
+                queuedEvent.buildId = build.getId();
+                queuedEvent.projectId = build.getProjectId();
+                queuedEvent.trigger = trigger.name();
+                queuedEvent.priority = build.getPriority();
+                queuedEvent.commit();
+            }
+
+            liveBuildLogs.open(build.getId());
+            ConcurrencyPolicy policy = concurrencyPolicyOf(project);
+            QueuedBuild entry = QueuedBuild.from(build);
+            entry.setNotBeforeMillis(notBeforeMillis);
+            entry.setConcurrencyPolicy(policy);
+            QueuedBuild evicted;
+            try {
+                evicted = buildQueue.offer(entry);
+            } catch (BuildQueueFullException e) {
+                buildRepository.markFinished(build.getId(), BuildStatus.CANCELLED, LocalDateTime.now(), e.getMessage());
+                liveBuildLogs.complete(build.getId());
+                projectEventBus.publish(ProjectUpdateType.BUILD, project, build.getId(), BuildStatus.CANCELLED);
+                throw e;
+            }
+            if (evicted != null) {
+                buildRepository.markFinished(evicted.getBuildId(), BuildStatus.CANCELLED, LocalDateTime.now(),
+                        "Evicted from full build queue by higher priority build " + build.getId());
+                liveBuildLogs.complete(evicted.getBuildId());
+                publishBuildUpdate(evicted.getProjectId(), evicted.getBuildId(), BuildStatus.CANCELLED);
+            }
+            projectEventBus.publish(ProjectUpdateType.BUILD, project, build.getId(), BuildStatus.QUEUED);
+
+            if (policy == ConcurrencyPolicy.CANCEL_SUPERSEDED) {
+                cancelSupersededBuilds(project.getProjectId(), branch, build.getId());
+            }
+
+            log.info("Queued {} build {} for projectId : {}", trigger, build.getId(), project.getProjectId());
+            return build;
+        }
+
+        private void checkOpen(Long projectId) {
+            if (closedProjects.contains(projectId)) {
+                throw new ResourceNotFoundException("Project " + projectId + " is being deleted");
+            }
+        }
+
+        /**
+         * Stops a project from taking new builds and cancels its queued and running ones. Running
+         * builds stop asynchronously, awaitProjectBuilds tells when they are gone.
+         */
+        @Override
+        public void closeProject(Long projectId) {
+            synchronized (buildNumberLocks.computeIfAbsent(projectId, id -> new Object())) {
+                closedProjects.add(projectId);
+            }
+            for (Build active : buildRepository.findAllByProjectIdAndStatusIn(projectId, List.of(BuildStatus.QUEUED, BuildStatus.RUNNING))) {
+                cancelBuild(active.getId());
+            }
+        }
+
+        @Override
+        public boolean awaitProjectBuilds(Long projectId, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!runningBuilds.forProject(projectId).isEmpty()) {
+                if (System.currentTimeMillis() >= deadline) {
+                    return false;
                 }
+                Thread.sleep(200);
+            }
+            return true;
+        }
 
-                String workingDir = cloneStage.cloneOrPullGithubRepo(project, new File(defaultRepoPath));
+        @Override
+        public void reopenProject(Long projectId) {
+            closedProjects.remove(projectId);
+        }
 
-                executePipeline(project, workingDir);
+        private ConcurrencyPolicy concurrencyPolicyOf(Project project) {
+            ProjectConfig config = project.getProjectConfig();
+            if (config == null || config.getConcurrencyPolicy() == null) {
+                return ConcurrencyPolicy.QUEUE;
+            }
+            return config.getConcurrencyPolicy();
+        }
 
-                return true;
-            }).get();
+        private String branchOf(Project project, String branch) {
+            if ((branch == null || branch.isBlank()) && project.getProjectConfig() != null) {
+                branch = project.getProjectConfig().getBranch();
+            }
+            return branch == null || branch.isBlank() ? null : branch.trim();
         }
 
-        private void executePipeline(Project project, String workingDir) {
-            PipelineConfig pipelineConfig = project.getPipelineConfig();
-            Long start = System.currentTimeMillis();
+        /**
+         * Cancels the older builds of the same project and branch, queued, taken or running. Builds
+         * of other branches are left alone.
+         */
+        private void cancelSupersededBuilds(Long projectId, String branch, Long newerBuildId) {
+            String reason = "Superseded by build " + newerBuildId;
+            for (QueuedBuild waiting : buildQueue.removeSuperseded(projectId, branch, newerBuildId)) {
+                buildRepository.markFinished(waiting.getBuildId(), BuildStatus.CANCELLED, LocalDateTime.now(), reason);
+                liveBuildLogs.complete(waiting.getBuildId());
+                publishBuildUpdate(projectId, waiting.getBuildId(), BuildStatus.CANCELLED);
+            }
+            // builds taken by a worker but not started yet are no longer in the queue, their rows are still QUEUED
+            buildRepository.cancelQueuedBefore(projectId, branch == null ? "" : branch, newerBuildId, LocalDateTime.now(), reason);
+            runningBuilds.forProject(projectId).stream()
+                    .filter(context -> Objects.equals(context.getBranch(), branch) && context.getBuildId() < newerBuildId)
+                    .forEach(context -> context.cancel(reason));
+        }
 
-            for (Stage stage : pipelineConfig.getStages()) {
-                try {
-                    execute(project, stage);
-                } catch (Exception e) {
-                    long executionTime = System.currentTimeMillis() - start;
-                    projectRepository.setStatusToRunning(ProjectStatus.FAILED, project.getProjectId());
+        @Override
+        public Build cancelBuild(Long buildId) {
+            Build build = getBuild(buildId);
+            buildQueue.remove(buildId);
+            // also stops a build a worker has taken but not started yet, its row is still QUEUED
+            if (buildRepository.cancelQueued(buildId, LocalDateTime.now(), "Cancelled by user") > 0) {
+                liveBuildLogs.complete(buildId);
+                publishBuildUpdate(build.getProjectId(), buildId, BuildStatus.CANCELLED);
+            } else {
+                runningBuilds.get(buildId).ifPresent(context -> context.cancel("Cancelled by user"));
+            }
+            return getBuild(build.getId());
+        }
 
-                    BuildLogs buildLogs = BuildLogs.builder()
-                            .executionTime(formatDuration(executionTime))
-                            .projectId(project.getProjectId())
-                            .status(BuildStatus.FAILURE)
-                            .timestamp(LocalDateTime.now())
-                            .build();
+        /**
+         * Publishes a build transition together with the project's current state as stored.
+         */
+        private void publishBuildUpdate(Long projectId, Long buildId, BuildStatus buildStatus) {
+            projectRepository.findById(projectId)
+                    .ifPresent(project -> projectEventBus.publish(ProjectUpdateType.BUILD, project, buildId, buildStatus));
+        }
 
-                    buildLogsRepository.save(buildLogs);
+        @Override
+        public Build getBuild(Long buildId) {
+            return buildRepository.findById(buildId).orElseThrow(() -> new ResourceNotFoundException("No build with this id : " + buildId));
+        }
 
-                    throw new RuntimeException("Stage failed: " + stage.getName() + " - " + e.getMessage(), e);
+        @Override
+        public List<StageExecution> getBuildStages(Long buildId) {
+            getBuild(buildId);
+            return stageExecutionRepository.findAllByBuildIdOrderByStageIndexAsc(buildId);
+        }
+
+        @Override
+        public Map<String, Object> getBuildTrace(Long buildId, TraceFormat format) {
+            getBuild(buildId);
+            return buildTraceService.export(buildId, format);
+        }
+
+        @Override
+        public List<BuildQueuePosition> getQueue() {
+            return buildQueue.snapshot();
+        }
+
+        @Override
+        public BuildQueuePosition getQueuePosition(Long buildId) {
+            return buildQueue.position(buildId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Build " + buildId + " is not waiting in the queue"));
+        }
+
+        @Override
+        public void runBuild(Long buildId) {
+            Build build = getBuild(buildId);
+            if (build.getStatus() != BuildStatus.QUEUED) {
+                log.info("Skipping build {} in state {}", buildId, build.getStatus());
+                liveBuildLogs.complete(buildId);
+                return;
+            }
+            Long projectId = build.getProjectId();
+            // registered before the row leaves QUEUED: a cancel that no longer finds the row QUEUED finds the context
+            BuildContext context = runningBuilds.register(buildId, projectId, build.getBranch());
+            try {
+                LocalDateTime startedAtTime = LocalDateTime.now();
+                Long queueMillis = build.getQueuedAt() != null ? Duration.between(build.getQueuedAt(), startedAtTime).toMillis() : null;
+                if (buildRepository.markStarted(buildId, BuildStatus.RUNNING, startedAtTime, queueMillis) == 0) {
+                    log.info("Skipping build {}, it was cancelled before it started", buildId);
+                    liveBuildLogs.complete(buildId);
+                    publishBuildUpdate(projectId, buildId, getBuild(buildId).getStatus());
+                    return;
                 }
+                // read again once RUNNING, a push coalesced into the build up to here has changed its commit
+                build = getBuild(buildId);
+                build.setQueueMillis(queueMillis);
+                run(build, context);
+            } finally {
+                // only once everything the build writes is written, project deletion waits for this
+                runningBuilds.unregister(buildId);
             }
+        }
 
-            // Optionally, save success log
-            long totalExecutionTime = System.currentTimeMillis() - start;
-            projectRepository.setStatusToRunning(ProjectStatus.SUCCESS, project.getProjectId());
+        private void run(Build build, BuildContext context) {
+            Long buildId = build.getId();
+            Long projectId = build.getProjectId();
+            liveBuildLogs.open(buildId);
+            try {
+                context.setOutput(new BuildOutputWriter(buildId, buildLogStore.openWriter(buildId), liveBuildLogs, context.getTail(), context.getTrace(), outputFlushMillis));
+            } catch (RuntimeException e) {
+                buildRepository.markFinished(buildId, BuildStatus.FAILURE, LocalDateTime.now(), truncate(e.getMessage()));
+                liveBuildLogs.complete(buildId);
+                publishBuildUpdate(projectId, buildId, BuildStatus.FAILURE);
+                throw e;
+            }
+            BuildTrace trace = context.getTrace();
+            if (build.getQueuedAt() != null) {
+                trace.add("queue", "queue", BuildTrace.LANE_PIPELINE, BuildTrace.toEpochMicros(build.getQueuedAt()), trace.nowMicros(),
+                        Map.of("trigger", String.valueOf(build.getTrigger())));
+            }
+            if (build.getQueueMillis() != null) {
+                buildMetrics.recordQueueWait(build.getQueueMillis());
+            }
+            BuildStartedEvent startedEvent = new BuildStartedEvent();
+            if (startedEvent.isEnabled()) {
+                startedEvent.buildId = buildId;
+                startedEvent.projectId = projectId;
+                startedEvent.queueMillis = build.getQueueMillis() != null ? build.getQueueMillis() : 0;
+                startedEvent.commit();
+            }
+            // spans the whole run so JFR can line GC, allocation and lock events up with this build
+            BuildFinishedEvent finishedEvent = new BuildFinishedEvent();
+            finishedEvent.begin();
+            ScheduledFuture<?> sampling = processSampler.start(context);
+            long startedAt = System.currentTimeMillis();
+            Project project = null;
+            BuildStatus outcome = BuildStatus.FAILURE;
+            String errorMessage = null;
+            String commitSha = null;
+            List<StageExecution> stages = new ArrayList<>();
+            WorkspaceManager.WorkspaceLease workspace = null;
+            try {
+                project = projectRepository.findById(projectId).orElseThrow(() -> new ResourceNotFoundException("Invalid project id.."));
+                projectRepository.setStatusToRunning(ProjectStatus.RUNNING, projectId);
+                publishBuildUpdate(projectId, buildId, BuildStatus.RUNNING);
 
-            BuildLogs successLog = BuildLogs.builder()
-                    .executionTime(formatDuration(totalExecutionTime))
+                context.getOutput().line("[mini-jenkin] Build " + buildId + " started, preparing workspace");
+                // every build gets a workspace of its own, so parallel builds never share a checkout
+                workspace = workspaceManager.lease(project, build, context);
+                String workingDir = workspace.directory().getAbsolutePath();
+                commitSha = workspace.commitSha();
+                context.getOutput().line("[mini-jenkin] Workspace " + workingDir + " at " + commitSha);
+
+                executePipeline(project, build, workingDir, context, stages);
+
+                context.getOutput().line("[mini-jenkin] Build succeeded");
+                outcome = BuildStatus.SUCCESS;
+            } catch (Exception e) {
+                context.getOutput().line("[mini-jenkin] Build " + (context.isCancelled() ? "cancelled: " + context.getCancelReason() : "failed: " + e.getMessage()));
+                if (context.isCancelled()) {
+                    log.info("Build {} for projectId {} cancelled: {}", buildId, projectId, context.getCancelReason());
+                    outcome = BuildStatus.CANCELLED;
+                    errorMessage = context.getCancelReason();
+                    // leave RUNNING to whichever build of the project is still going
+                    if (runningBuilds.forProject(projectId).size() <= 1) {
+                        projectRepository.setStatusToRunning(ProjectStatus.PENDING, projectId);
+                    }
+                } else {
+                    log.error("Build {} for projectId {} failed: {}", buildId, projectId, e.getMessage(), e);
+                    projectRepository.setStatusToRunning(ProjectStatus.FAILED, projectId);
+                    errorMessage = truncate(e.getMessage());
+                }
+            } finally {
+                if (sampling != null) {
+                    sampling.cancel(false);
+                }
+                try (BuildTrace.Span span = trace.start("record build", "persistence")) {
+                    recordBuild(build, outcome, errorMessage, System.currentTimeMillis() - startedAt, commitSha, stages);
+                    publishBuildUpdate(projectId, buildId, outcome);
+                } catch (Exception e) {
+                    log.error("Could not record build {}: {}", buildId, e.getMessage(), e);
+                }
+                if (finishedEvent.shouldCommit()) {
+                    finishedEvent.buildId = buildId;
+                    finishedEvent.projectId = projectId;
+                    finishedEvent.buildNumber = build.getBuildNumber() != null ? build.getBuildNumber() : 0;
+                    finishedEvent.status = outcome.name();
+                    finishedEvent.stages = stages.size();
+                    finishedEvent.commit();
+                }
+                buildLogStore.closeWriter(buildId);
+                liveBuildLogs.complete(buildId);
+                logCompactor.compressAsync(buildId);
+                if (workspace != null) {
+                    try (BuildTrace.Span span = trace.start("release workspace", "workspace")) {
+                        // a failed or cancelled build's leftovers must not reach the next build
+                        workspaceManager.release(workspace, outcome == BuildStatus.SUCCESS);
+                    }
+                }
+            }
+            if (project != null && outcome != BuildStatus.CANCELLED) {
+                // only queues the mail, sending happens on the notifier thread
+                try (BuildTrace.Span span = trace.start("notify", "notification")) {
+                    notifyBuildFinished(project, buildId, outcome, System.currentTimeMillis() - startedAt, context);
+                }
+            }
+            try {
+                buildTraceService.save(build, trace, outcome, commitSha);
+            } catch (Exception e) {
+                log.warn("Could not store trace of build {}: {}", buildId, e.getMessage());
+            }
+        }
+
+        /**
+         * Writes the outcome of a build in one go: the build row's final state, its stages, the
+         * history row, the project's last-build summary and the project's daily statistics.
+         */
+        private void recordBuild(Build build, BuildStatus status, String errorMessage, long durationMillis, String commitSha, List<StageExecution> stages) {
+            LocalDateTime finishedAt = LocalDateTime.now();
+            buildMetrics.recordBuild(status, durationMillis);
+            buildRepository.markCompleted(build.getId(), status, finishedAt, errorMessage, durationMillis, commitSha);
+            if (!stages.isEmpty()) {
+                stageExecutionRepository.saveAll(stages);
+            }
+            String executionTime = Durations.formatDuration(durationMillis);
+            buildLogsRepository.save(BuildLogs.builder()
+                    .projectId(build.getProjectId())
+                    .buildId(build.getId())
+                    .buildNumber(build.getBuildNumber())
+                    .commitSha(commitSha != null ? commitSha : build.getCommitSha())
+                    .status(status)
+                    .durationMillis(durationMillis)
+                    .executionTime(executionTime)
+                    .timestamp(finishedAt)
+                    .build());
+            projectRepository.recordLastBuild(build.getProjectId(), build.getId(), finishedAt.toString(), executionTime, durationMillis);
+            buildStatsRollup.record(build.getProjectId(), finishedAt.toLocalDate(), status, durationMillis, build.getQueueMillis(), stages);
+        }
+
+        private void notifyBuildFinished(Project project, Long buildId, BuildStatus status, long durationMillis, BuildContext context) {
+            List<String> tail = context.getTail().lines();
+            ProjectConfig config = project.getProjectConfig();
+            buildNotifier.notify(BuildNotification.builder()
+                    .buildId(buildId)
                     .projectId(project.getProjectId())
-                    .status(BuildStatus.SUCCESS)
-                    .timestamp(LocalDateTime.now())
-                    .build();
+                    .projectName(project.getProjectName())
+                    .userId(project.getUserId())
+                    .status(status)
+                    .durationMillis(durationMillis)
+                    .finishedAt(LocalDateTime.now())
+                    .mode(config == null || config.getNotificationMode() == null ? NotificationMode.EACH_BUILD : config.getNotificationMode())
+                    .tail(List.copyOf(tail.subList(Math.max(tail.size() - notificationTailLines, 0), tail.size())))
+                    .build());
+        }
+
+        private String truncate(String message) {
+            if (message == null || message.length() <= 2000) {
+                return message;
+            }
+            return message.substring(0, 2000);
+        }
+
+        private void executePipeline(Project project, Build build, String workingDir, BuildContext context, List<StageExecution> executions) {
+            PipelineConfig pipelineConfig = project.getPipelineConfig();
+            List<Stage> stages = pipelineConfig.getStages();
+
+            for (int i = 0; i < stages.size(); i++) {
+                Stage stage = stages.get(i);
+                StageExecution execution = StageExecution.builder()
+                        .buildId(build.getId())
+                        .projectId(project.getProjectId())
+                        .stageIndex(i)
+                        .stageName(stage.getName())
+                        .startedAt(LocalDateTime.now())
+                        .build();
+                executions.add(execution);
+                long stageStart = System.currentTimeMillis();
+                long linesBefore = context.getOutput().linesWritten();
+                long bytesBefore = context.getOutput().bytesWritten();
+                StageExecutedEvent stageEvent = new StageExecutedEvent();
+                stageEvent.begin();
+                BuildTrace.Span stageSpan = context.getTrace().start("stage: " + stage.getName(), "stage");
+                try {
+                    if (context.isCancelled()) {
+                        throw new BuildCancelledException(context.getCancelReason());
+                    }
+                    execute(project, stage, workingDir, context, execution);
+                    execution.setStatus(BuildStatus.SUCCESS);
+                } catch (Exception e) {
+                    execution.setStatus(context.isCancelled() ? BuildStatus.CANCELLED : BuildStatus.FAILURE);
+                    if (!context.isCancelled()) {
+                        projectRepository.setStatusToRunning(ProjectStatus.FAILED, project.getProjectId());
+                    }
+                    throw new RuntimeException("Stage failed: " + stage.getName() + " - " + e.getMessage(), e);
+                } finally {
+                    if (execution.getStatus() == null) {
+                        // an Error skipped the catch above, recording it must not hide the Error
+                        execution.setStatus(context.isCancelled() ? BuildStatus.CANCELLED : BuildStatus.FAILURE);
+                    }
+                    execution.setDurationMillis(System.currentTimeMillis() - stageStart);
+                    buildMetrics.recordStage(execution.getStatus(), execution.getDurationMillis());
+                    if (stageEvent.shouldCommit()) {
+                        stageEvent.buildId = build.getId();
+                        stageEvent.projectId = project.getProjectId();
+                        stageEvent.stageIndex = i;
+                        stageEvent.stageName = stage.getName();
+                        stageEvent.status = execution.getStatus().name();
+                        stageEvent.exitCode = execution.getExitCode() != null ? execution.getExitCode() : -1;
+                        stageEvent.outputLines = context.getOutput().linesWritten() - linesBefore;
+                        stageEvent.outputBytes = context.getOutput().bytesWritten() - bytesBefore;
+                        stageEvent.commit();
+                    }
+                    stageSpan.attr("stage.index", i)
+                            .attr("stage.status", execution.getStatus().name())
+                            .attr("stage.exit_code", execution.getExitCode())
+                            .attr("stage.output_lines", context.getOutput().linesWritten() - linesBefore)
+                            .attr("stage.output_bytes", context.getOutput().bytesWritten() - bytesBefore)
+                            .close();
+                }
+            }
 
-            buildLogsRepository.save(successLog);
+            projectRepository.setStatusToRunning(ProjectStatus.SUCCESS, project.getProjectId());
         }
 
 
-        private void execute(Project project, Stage stage) throws Exception{
+        private void execute(Project project, Stage stage, String workingDir, BuildContext context, StageExecution execution) throws Exception{
             String command = stage.getCommand();
-            String workingDir = defaultRepoPath + File.separator + project.getProjectName(); // or pass this in
 
             log.info("Executing stage '{}' with command: {}", stage.getName(), command);
 
@@ -152,6 +642,7 @@
                     .logTime(LocalDateTime.now())
                     .build();
             projectLogService.addProjectLog(startLog, project.getProjectId());
+            context.getOutput().line("[mini-jenkin] Starting stage: " + stage.getName());
 
             boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
             ProcessBuilder builder = isWindows ?
@@ -163,19 +654,22 @@
 
             long start = System.currentTimeMillis();
             Process process = builder.start();
+            context.attach(process);
 
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
+            ProcessOutputPump.pump(process.getInputStream(), outputMaxLineLength, context.getOutput()::line);
 
             int exitCode = process.waitFor();
+            context.detach();
+            execution.setExitCode(exitCode);
             long end = System.currentTimeMillis();
 
-            String duration = formatDuration(end - start);
+            if (context.isCancelled()) {
+                throw new BuildCancelledException("Stage '" + stage.getName() + "' cancelled: " + context.getCancelReason());
+            }
+
+            String duration = Durations.formatDuration(end - start);
+            context.getOutput().line("[mini-jenkin] Stage '" + stage.getName() + "' finished with exit code " + exitCode + " in " + duration);
+            context.getOutput().flush();
 
             if (exitCode != 0) {
                 log.error("Stage '{}' failed with exit code {}", stage.getName(), exitCode);
@@ -189,17 +683,9 @@
             } else {
                 projectLogService.addProjectLog(ProjectLogs.builder()
                         .projectId(project.getProjectId())
-                        .log("Stage '" + stage.getName() + "' succeeded.\nOutput:\n" + output)
+                        .log("Stage '" + stage.getName() + "' succeeded.")
                         .logTime(LocalDateTime.now())
                         .build(), project.getProjectId());
-                User user = userRepository.findById(project.getUserId())
-                        .orElseThrow(() -> new ResourceNotFoundException("User not found for id: " + project.getUserId()));
-
-                emailSendingService.sendEmail(MailObject.builder()
-                        .recipient(user.getEmail())
-                        .subject("Build Success Notification")
-                        .msgBody(buildSuccessEmailBody(project.getProjectName(), output.toString()))
-                        .build());
                 log.info("Stage '{}' completed successfully in {}", stage.getName(), duration);
             }
 
@@ -229,212 +715,6 @@
             }
         }
 
-        private void cloneRepoAndExecuteShellCommands(ProjectConfig projectConfig) {
-            try {
-
-                //clone the repo in default_repo_url/<project_name>/
-                String repoUrl = projectConfig.getGithubUrl().trim();
-                File workingDirFile = new File(defaultRepoPath, projectConfig.getProject().getProjectName());
-
-                if (workingDirFile.exists() && new File(workingDirFile, ".git").exists()) {
-                    // Update the existing repository
-                    try {
-                        Git git = Git.open(workingDirFile);
-                        git.pull().call();
-                        log.info("Repository updated successfully in {}", workingDirFile.getAbsolutePath());
-                        ProjectLogs projectLogs = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("\"Repository updated successfully in " + workingDirFile.getAbsolutePath()).logTime(LocalDateTime.now()).build();
-                        projectLogService.addProjectLog(projectLogs, projectConfig.getProject().getProjectId());
-                        git.close();
-                    } catch (Exception e) {
-                        log.error("Failed to pull repository: {}", workingDirFile.getAbsolutePath(), e);
-                        ProjectLogs projectLogs = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Failed to pull repository: " + workingDirFile.getAbsolutePath() + " " + e.getMessage()).logTime(LocalDateTime.now()).build();
-                        projectLogService.addProjectLog(projectLogs, projectConfig.getProject().getProjectId());
-                        throw new GeneralException("Failed to pull repository: " + workingDirFile.getAbsolutePath());
-                    }
-                } else {
-                    // Clone the repository
-                    try {
-                        Git.cloneRepository()
-                                .setURI(repoUrl)
-                                .setDirectory(workingDirFile)
-                                .call();
-                        log.info("Repository cloned successfully to {}", workingDirFile.getAbsolutePath());
-                        ProjectLogs projectLogs = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Repository cloned successfully to " + workingDirFile.getAbsolutePath()).logTime(LocalDateTime.now()).build();
-                        projectLogService.addProjectLog(projectLogs, projectConfig.getProject().getProjectId());
-                    } catch (Exception e) {
-                        log.error("Failed to clone repository", e);
-                        ProjectLogs projectLogs = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Failed to clone repository " + e.getMessage()).logTime(LocalDateTime.now()).build();
-                        projectLogService.addProjectLog(projectLogs, projectConfig.getProject().getProjectId());
-                        throw new GeneralException(e.getMessage());
-                    }
-                }
-
-                //run the shell commands in the default_repo_url/<project_name>/repo_name/
-                executeShellCommands(projectConfig, workingDirFile.getAbsolutePath());
-
-            } catch (Exception e) {
-                throw new GeneralException(e.getMessage());
-            }
-        }
-
-        private void executeShellCommands(ProjectConfig projectConfig, String workingDir) {
-            String shellCommand = projectConfig.getShellCommand();
-            if (shellCommand == null || shellCommand.isEmpty()) {
-                log.warn("No shell command provided.");
-                return;
-            }
-            projectRepository.setStatusToRunning(ProjectStatus.RUNNING, projectConfig.getProject().getProjectId());
-            log.info("Executing shell command: {} in directory {}", shellCommand, workingDir);
-            ProjectLogs projectLogs = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Executing shell command: {} in directory " + shellCommand + " " + workingDir).logTime(LocalDateTime.now()).build();
-            projectLogService.addProjectLog(projectLogs, projectConfig.getProject().getProjectId());
-            try {
-                //check the os
-                //On windows the commands run via "cmd /c"
-                //on linux the commands run via "sh -c"
-                boolean isWindows = System.getProperty("os.name").toLowerCase().contains("win");
-
-                ProcessBuilder processBuilder;
-                if (isWindows) {
-                    processBuilder = new ProcessBuilder("cmd.exe", "/c", shellCommand);
-                } else {
-                    processBuilder = new ProcessBuilder("sh", "-c", shellCommand);
-                }
-                processBuilder.directory(new File(workingDir));
-                processBuilder.redirectErrorStream(true);
-                Long startTime = System.currentTimeMillis();
-                Process process = processBuilder.start();
-                StringBuilder output = new StringBuilder();
-                try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                    }
-                }
-
-                int exitCode = process.waitFor();
-                Long endTime = System.currentTimeMillis();
-                Long executionTime = endTime - startTime;
-                if (exitCode != 0) {
-                    log.error("Shell command exited with error code: {}", exitCode);
-                    ProjectLogs projectLogss = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Shell command exited with error code: " + exitCode).logTime(LocalDateTime.now()).build();
-                    projectLogService.addProjectLog(projectLogss, projectConfig.getProject().getProjectId());
-                    BuildLogs buildLogs = BuildLogs.builder()
-                            .executionTime(formatDuration(executionTime))
-                            .projectId(projectConfig.getProject().getProjectId())
-                            .status(BuildStatus.FAILURE)
-                            .timestamp(LocalDateTime.now())
-                            .build();
-                    buildLogsRepository.save(buildLogs);
-                    throw new RuntimeException("Shell command failed with exit code " + exitCode);
-                } else {
-                    projectRepository.setStatusToRunning(ProjectStatus.SUCCESS, projectConfig.getProject().getProjectId());
-                    log.info("Shell command executed successfully. : {}", output.toString());
-                    ProjectLogs projectLogss = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log(output.toString()).logTime(LocalDateTime.now()).build();
-                    projectLogService.addProjectLog(projectLogss, projectConfig.getProject().getProjectId());
-                    BuildLogs buildLogs = BuildLogs.builder()
-                            .executionTime(formatDuration(executionTime))
-                            .projectId(projectConfig.getProject().getProjectId())
-                            .status(BuildStatus.SUCCESS)
-                            .timestamp(LocalDateTime.now())
-                            .build();
-                    buildLogsRepository.save(buildLogs);
-
-                    User user = userRepository.findById(projectConfig.getProject().getUserId())
-                            .orElseThrow(() -> new ResourceNotFoundException("User not found for id: " + projectConfig.getProject().getUserId()));
-
-                    emailSendingService.sendEmail(MailObject.builder()
-                            .recipient(user.getEmail())
-                            .subject("Build Success Notification")
-                            .msgBody(buildSuccessEmailBody(projectConfig.getProject().getProjectName(), output.toString()))
-                            .build());
-                }
-            } catch (Exception e) {
-                Thread.currentThread().interrupt(); // Restore interrupted status
-                log.error("Error executing shell command", e);
-                ProjectLogs projectLogss = ProjectLogs.builder().projectId(projectConfig.getProject().getProjectId()).log("Error executing shell command " + e.getMessage()).logTime(LocalDateTime.now()).build();
-                projectLogService.addProjectLog(projectLogss, projectConfig.getProject().getProjectId());
-                updateProjectStatus(projectConfig.getProject().getProjectId(), ProjectStatus.FAILED);
-                BuildLogs buildLogs = BuildLogs.builder()
-                        .executionTime(formatDuration(0))
-                        .projectId(projectConfig.getProject().getProjectId())
-                        .status(BuildStatus.FAILURE)
-                        .timestamp(LocalDateTime.now())
-                        .build();
-                buildLogsRepository.save(buildLogs);
-                throw new RuntimeException(e);
-            }
-        }
-
-        private String buildSuccessEmailBody(String projectName, String projectLog) {
-
-            return String.format("""
-                <!DOCTYPE html>
-                <html lang="en">
-                <head>
-                  <meta charset="UTF-8">
-                  <title>Build Success Notification</title>
-                </head>
-                <body style="margin:0;padding:0;background:#f4f8fb;font-family:'Segoe UI',Arial,sans-serif;">
-                  <table width="100%%" bgcolor="#f4f8fb" cellpadding="0" cellspacing="0" style="padding:40px 0;">
-                    <tr>
-                      <td align="center">
-                        <table width="480" cellpadding="0" cellspacing="0" style="background:#fff;border-radius:18px;box-shadow:0 8px 32px rgba(44,62,80,0.10);overflow:hidden;">
-                          <tr>
-                            <td style="background:linear-gradient(90deg,#2563eb 0%%,#1e40af 100%%);padding:32px 0;text-align:center;">
-                              <div style="display:inline-block;background:#fff;border-radius:50%%;padding:16px;">
-                                <svg width="48" height="48" fill="none" viewBox="0 0 24 24" style="display:block;">
-                                  <circle cx="12" cy="12" r="12" fill="#2563eb"/>
-                                  <path d="M8 12.5l2.5 2.5 5-5" stroke="#fff" stroke-width="2.5" stroke-linecap="round" stroke-linejoin="round"/>
-                                </svg>
-                              </div>
-                              <h1 style="color:#fff;font-size:2rem;font-weight:700;margin:24px 0 0 0;letter-spacing:-1px;">Build Success!</h1>
-                            </td>
-                          </tr>
-                          <tr>
-                            <td style="padding:32px 32px 24px 32px;text-align:center;">
-                              <h2 style="color:#1e293b;font-size:1.25rem;font-weight:600;margin:0 0 12px 0;">Your project <span style="color:#2563eb;">%s</span> has been built successfully.</h2>
-                              <p style="color:#334155;font-size:1rem;line-height:1.6;margin:0 0 24px 0;">
-                                Congratulations! The latest build for <b>%s</b> completed without errors.<br>
-                                You can now continue your workflow with confidence.
-                              </p>
-                              <div style="background:#f8fafc;border-radius:8px;padding:16px;text-align:left;margin-top:24px;">
-                                <h3 style="color:#1e293b;font-size:1rem;margin:0 0 8px 0;">Latest Build Log:</h3>
-                                <pre style="background:#f1f5f9;padding:12px;border-radius:6px;margin:0;overflow-x:auto;font-size:0.875rem;color:#334155;">%s</pre>
-                              </div>
-                            </td>
-                          </tr>
-                          <tr>
-                            <td style="padding:24px 32px 32px 32px;text-align:center;">
-                              <p style="color:#64748b;font-size:0.95rem;margin:0;">
-                                &copy; 2025 CI/CD by Ankit Chauhan &mdash; Modern continuous integration and deployment
-                              </p>
-                            </td>
-                          </tr>
-                        </table>
-                      </td>
-                    </tr>
-                  </table>
-                </body>
-                </html>
-                """, projectName, projectName, projectLog);
-        }
-
-        public static String formatDuration(long milliseconds) {
-            long totalSeconds = milliseconds / 1000;
-            long hours = totalSeconds / 3600;
-            long minutes = (totalSeconds % 3600) / 60;
-            long seconds = totalSeconds % 60;
-
-            StringBuilder sb = new StringBuilder();
-
-            if (hours > 0) sb.append(hours).append("h ");
-            if (minutes > 0) sb.append(minutes).append("m ");
-            if (seconds > 0 || sb.length() == 0) sb.append(seconds).append("s");
-
-            return sb.toString().trim();
-        }
-
-
         void updateProjectStatus(Long projectId, ProjectStatus status) {
             projectRepository.setStatusToRunning(status, projectId);
         }
@@ -1,11 +1,23 @@
 package com.mini_jenkin.service.serviceImpl;
 
 import com.mini_jenkin.entity.ProjectLogs;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.HistoryCursor;
+import com.mini_jenkin.payload.HistoryQuery;
+import com.mini_jenkin.payload.LogLine;
+import com.mini_jenkin.payload.LogRange;
+import com.mini_jenkin.payload.ProjectLogEntry;
 import com.mini_jenkin.repository.ProjectLogRepository;
+import com.mini_jenkin.service.cleanup.ProjectCleanupService;
+import com.mini_jenkin.service.logstore.BuildLogStore;
+import com.mini_jenkin.service.logstore.LiveBuildLogs;
+import com.mini_jenkin.service.logstore.ProjectLogWriter;
 import com.mini_jenkin.service.serviceInterface.ProjectLogServiceInterface;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Optional;
@@ -13,8 +25,19 @@ import java.util.Optional;
 @Service
 public class ProjectLogServiceImpl implements ProjectLogServiceInterface {
 
+    // upper bound on lines returned by one range read
+    private static final int MAX_RANGE_LINES = 5000;
+
     @Autowired
     private ProjectLogRepository projectLogRepository;
+    @Autowired
+    private BuildLogStore buildLogStore;
+    @Autowired
+    private LiveBuildLogs liveBuildLogs;
+    @Autowired
+    private ProjectLogWriter projectLogWriter;
+    @Autowired
+    private ProjectCleanupService projectCleanupService;
 
     @Override
     public ProjectLogs addProjectLog(ProjectLogs projectLog, Long projectId) {
@@ -25,15 +48,21 @@ public class ProjectLogServiceImpl implements ProjectLogServiceInterface {
             projectLog.setLog(projectLog.getLog().substring(0, 4000) + "... [TRUNCATED]");
         }
         projectLog.setProjectId(projectId);
-        return projectLogRepository.save(projectLog);
+        // written by the flusher, the returned row has no id yet
+        projectLogWriter.append(projectLog);
+        return projectLog;
     }
 
     @Override
-    public List<ProjectLogs> getAllProjectLogs(Long projectId) {
+    public CursorPage<ProjectLogEntry> getProjectLogPage(Long projectId, HistoryQuery query) {
         if (projectId == null) {
             throw new RuntimeException("Project ID cannot be null");
         }
-        return projectLogRepository.findByProjectId(projectId);
+        HistoryCursor cursor = HistoryCursor.decode(query.getCursor());
+        int pageSize = query.pageSize();
+        List<ProjectLogEntry> rows = projectLogRepository.findHistoryPage(projectId,
+                query.fromOrEarliest(), query.toOrLatest(), cursor.time(), cursor.id(), Limit.of(pageSize + 1));
+        return CursorPage.of(rows, pageSize, row -> new HistoryCursor(row.getLogTime(), row.getId()));
     }
 
     @Override
@@ -46,12 +75,34 @@ public class ProjectLogServiceImpl implements ProjectLogServiceInterface {
     }
 
     @Override
-    @Transactional
-    public Boolean deleteProjectLogs(Long projectId) {
+    public DeletionJob deleteProjectLogs(Long projectId) {
         if (projectId == null) {
             throw new RuntimeException("Project ID cannot be null");
         }
-        projectLogRepository.deleteByProjectId(projectId);
-        return true;
+        return projectCleanupService.submitLogPurge(projectId);
+    }
+
+    @Override
+    public LogRange getBuildLog(Long buildId, long offset, int limit) {
+        if (buildId == null) {
+            throw new RuntimeException("Build ID cannot be null");
+        }
+        return buildLogStore.read(buildId, offset, Math.min(limit, MAX_RANGE_LINES));
+    }
+
+    @Override
+    public LogRange getBuildLogTail(Long buildId, int lines) {
+        if (buildId == null) {
+            throw new RuntimeException("Build ID cannot be null");
+        }
+        return buildLogStore.tail(buildId, Math.min(lines, MAX_RANGE_LINES));
+    }
+
+    @Override
+    public Flux<LogLine> followBuildLog(Long buildId, long fromLine) {
+        if (buildId == null) {
+            throw new RuntimeException("Build ID cannot be null");
+        }
+        return liveBuildLogs.follow(buildId, fromLine);
     }
 }
@@ -4,14 +4,27 @@ import com.mini_jenkin.entity.*;
 import com.mini_jenkin.exception.DuplicateEntryException;
 import com.mini_jenkin.exception.InvalidGithubUrlException;
 import com.mini_jenkin.exception.ResourceNotFoundException;
+import com.mini_jenkin.payload.BuildLogSummary;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.HistoryQuery;
+import com.mini_jenkin.payload.ProjectBuildStats;
+import com.mini_jenkin.payload.ProjectLogEntry;
 import com.mini_jenkin.payload.PipelineConfigRequest;
 import com.mini_jenkin.payload.PipelineRequest;
 import com.mini_jenkin.payload.ProjectRequest;
 import com.mini_jenkin.payload.ProjectStatus;
+import com.mini_jenkin.payload.ProjectUpdateType;
+import com.mini_jenkin.payload.WorkspaceUsage;
+import com.mini_jenkin.payload.WorkspaceUsageReport;
 import com.mini_jenkin.repository.PipelineRepository;
 import com.mini_jenkin.repository.ProjectConfigRepository;
 import com.mini_jenkin.repository.ProjectRepository;
 import com.mini_jenkin.repository.StageRepository;
+import com.mini_jenkin.service.cleanup.ProjectCleanupService;
+import com.mini_jenkin.service.events.ProjectEventBus;
+import com.mini_jenkin.service.stats.BuildStatsRollup;
+import com.mini_jenkin.service.workspace.WorkspaceCollector;
 import com.mini_jenkin.service.serviceInterface.BuildLogServiceInterface;
 import com.mini_jenkin.service.serviceInterface.ProjectServiceInterface;
 import lombok.extern.slf4j.Slf4j;
@@ -20,8 +33,10 @@ import org.eclipse.jgit.api.errors.TransportException;
 import org.eclipse.jgit.lib.Ref;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
@@ -45,6 +60,17 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
     private PipelineRepository pipelineRepository;
     @Autowired
     private StageRepository stageRepository;
+    @Autowired
+    private ProjectEventBus projectEventBus;
+    @Autowired
+    private ProjectCleanupService projectCleanupService;
+    @Autowired
+    private BuildStatsRollup buildStatsRollup;
+    @Autowired
+    private WorkspaceCollector workspaceCollector;
+
+    @Value("${build.stats.default-days:30}")
+    private int defaultStatsDays;
 
     @Override
     public Project createProject(ProjectRequest projectRequest) {
@@ -74,7 +100,9 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
             // ✅ Set the reverse relationship
             createdProject.setPipelineConfig(pipelineConfig);  // <- PUT IT HERE
 
-            return projectRepository.save(createdProject); // <- Save again to persist the relation (optional but safe)
+            Project savedProject = projectRepository.save(createdProject); // <- Save again to persist the relation (optional but safe)
+            projectEventBus.publish(ProjectUpdateType.CREATED, savedProject);
+            return savedProject;
 
         } catch (Exception e) {
             log.info("project creation error : {}", e.getMessage());
@@ -114,9 +142,8 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
     }
 
     @Override
-    public void deleteProject(Long id) {
-        Project project = projectRepository.findById(id).orElseThrow(() -> new ResourceNotFoundException("PROJECT WITH ID : " + id + " NOT FOUND"));
-        projectRepository.delete(project);
+    public DeletionJob deleteProject(Long id) {
+        return projectCleanupService.submitProjectDeletion(id);
     }
 
     @Override
@@ -140,10 +167,33 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
             oldConfig.setShellCommand(projectConfig.getShellCommand());
             oldConfig.setBranch(projectConfig.getBranch());
             oldConfig.setEnvironmentVariables(projectConfig.getEnvironmentVariables());
+            if (projectConfig.getConcurrencyPolicy() != null) {
+                oldConfig.setConcurrencyPolicy(projectConfig.getConcurrencyPolicy());
+            }
+            if (projectConfig.getNotificationMode() != null) {
+                oldConfig.setNotificationMode(projectConfig.getNotificationMode());
+            }
+            if (projectConfig.getLogRetentionBuilds() != null) {
+                oldConfig.setLogRetentionBuilds(projectConfig.getLogRetentionBuilds());
+            }
+            if (projectConfig.getLogRetentionDays() != null) {
+                oldConfig.setLogRetentionDays(projectConfig.getLogRetentionDays());
+            }
+            if (projectConfig.getCloneDepth() != null) {
+                oldConfig.setCloneDepth(projectConfig.getCloneDepth());
+            }
+            if (projectConfig.getSingleBranch() != null) {
+                oldConfig.setSingleBranch(projectConfig.getSingleBranch());
+            }
+            if (projectConfig.getPartialClone() != null) {
+                oldConfig.setPartialClone(projectConfig.getPartialClone());
+            }
             oldConfig.setProject(project);  // update relation in case it changed
 
             // Save updated config
-            return projectConfigRepository.save(oldConfig);
+            ProjectConfig savedConfig = projectConfigRepository.save(oldConfig);
+            projectEventBus.publish(ProjectUpdateType.UPDATED, project);
+            return savedConfig;
 
         } catch (Exception e) {
             log.error("Project config update error: {}", e.getMessage(), e);
@@ -174,8 +224,8 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
     }
 
     @Override
-    public List<ProjectLogs> getAllProjectLogs(Long projectId) {
-        return projectLogServiceImpl.getAllProjectLogs(projectId);
+    public CursorPage<ProjectLogEntry> getProjectLogPage(Long projectId, HistoryQuery query) {
+        return projectLogServiceImpl.getProjectLogPage(projectId, query);
     }
 
     @Override
@@ -189,15 +239,43 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
     }
 
     @Override
-    public List<BuildLogs> getAllBuildLogs(Long projectId) {
-        return buildLogService.getAllBuildLogs(projectId);
+    public CursorPage<BuildLogSummary> getBuildHistory(Long projectId, HistoryQuery query) {
+        return buildLogService.getBuildHistory(projectId, query);
     }
 
     @Override
-    public Boolean clearProjectLogs(Long projectId) {
+    public DeletionJob clearProjectLogs(Long projectId) {
         return projectLogServiceImpl.deleteProjectLogs(projectId);
     }
 
+    @Override
+    public DeletionJob getDeletionJob(String jobId) {
+        return projectCleanupService.getJob(jobId);
+    }
+
+    @Override
+    public ProjectBuildStats getProjectStats(Long projectId, LocalDate from, LocalDate to) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new ResourceNotFoundException("PROJECT WITH ID : " + projectId + " NOT FOUND");
+        }
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(defaultStatsDays - 1);
+        return buildStatsRollup.stats(projectId, start, end);
+    }
+
+    @Override
+    public WorkspaceUsage getWorkspaceUsage(Long projectId) {
+        if (!projectRepository.existsById(projectId)) {
+            throw new ResourceNotFoundException("PROJECT WITH ID : " + projectId + " NOT FOUND");
+        }
+        return workspaceCollector.usage(projectId);
+    }
+
+    @Override
+    public WorkspaceUsageReport getWorkspaceUsageReport() {
+        return workspaceCollector.report();
+    }
+
     @Override
     public Project updatePipeline(PipelineConfig pipelineConfig, Long pipelineId) {
         PipelineConfig oldConfig = pipelineRepository.findById(pipelineId)
@@ -217,7 +295,9 @@ public class ProjectServiceImpl implements ProjectServiceInterface {
             });
         }
 
-        return pipelineRepository.save(oldConfig).getProject();
+        Project project = pipelineRepository.save(oldConfig).getProject();
+        projectEventBus.publish(ProjectUpdateType.UPDATED, project);
+        return project;
     }
 
 
@@ -1,11 +1,12 @@
 package com.mini_jenkin.service.serviceInterface;
 
 import com.mini_jenkin.entity.BuildLogs;
-
-import java.util.List;
+import com.mini_jenkin.payload.BuildLogSummary;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.HistoryQuery;
 
 public interface BuildLogServiceInterface {
     public BuildLogs insertBuildLog(BuildLogs buildLogs);
-    public List<BuildLogs> getAllBuildLogs(Long projectId);
+    public CursorPage<BuildLogSummary> getBuildHistory(Long projectId, HistoryQuery query);
     public BuildLogs getBuildLogById(Integer id);
 }
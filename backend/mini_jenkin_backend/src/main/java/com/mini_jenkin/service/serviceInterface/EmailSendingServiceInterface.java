@@ -2,6 +2,13 @@ package com.mini_jenkin.service.serviceInterface;
 
 import com.mini_jenkin.payload.MailObject;
 
+import java.util.List;
+
 public interface EmailSendingServiceInterface {
     String sendEmail(MailObject mailObject);
+
+    /**
+     * Sends all mails over one SMTP connection and returns the ones that could not be sent.
+     */
+    List<MailObject> sendEmails(List<MailObject> mailObjects);
 }
@@ -1,10 +1,39 @@
 package com.mini_jenkin.service.serviceInterface;
 
-import com.mini_jenkin.entity.ProjectConfig;
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildTrigger;
+import com.mini_jenkin.entity.StageExecution;
+import com.mini_jenkin.payload.BuildQueuePosition;
+import com.mini_jenkin.payload.TraceFormat;
+
+import java.util.List;
+import java.util.Map;
 
 public interface ProjectExecutionServiceInterface {
 
-    public Boolean executeProject(Long projectId) throws Exception;
+    public Build executeProject(Long projectId, BuildTrigger trigger);
+
+    public Build executeWebhookPush(Long projectId, String branch, String commitSha);
+
+    public Build getBuild(Long buildId);
+
+    public List<StageExecution> getBuildStages(Long buildId);
+
+    public Map<String, Object> getBuildTrace(Long buildId, TraceFormat format);
+
+    public List<BuildQueuePosition> getQueue();
+
+    public BuildQueuePosition getQueuePosition(Long buildId);
+
+    public void runBuild(Long buildId);
+
+    public Build cancelBuild(Long buildId);
+
+    public void closeProject(Long projectId);
+
+    public boolean awaitProjectBuilds(Long projectId, long timeoutMillis) throws InterruptedException;
+
+    public void reopenProject(Long projectId);
 
     public Boolean scheduleProjectExecution(Long projectId, String cronExpression);
 }
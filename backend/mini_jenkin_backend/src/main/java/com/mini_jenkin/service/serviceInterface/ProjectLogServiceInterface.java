@@ -1,13 +1,22 @@
 package com.mini_jenkin.service.serviceInterface;
 
 import com.mini_jenkin.entity.ProjectLogs;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.HistoryQuery;
+import com.mini_jenkin.payload.LogLine;
+import com.mini_jenkin.payload.LogRange;
+import com.mini_jenkin.payload.ProjectLogEntry;
+import reactor.core.publisher.Flux;
 
-import java.util.List;
 
 public interface ProjectLogServiceInterface {
 
     ProjectLogs addProjectLog(ProjectLogs projectLog, Long projectId);
-    List<ProjectLogs> getAllProjectLogs(Long projectId);
+    CursorPage<ProjectLogEntry> getProjectLogPage(Long projectId, HistoryQuery query);
     ProjectLogs getProjectLogs(Long projectId);
-    Boolean deleteProjectLogs(Long projectId);
+    DeletionJob deleteProjectLogs(Long projectId);
+    LogRange getBuildLog(Long buildId, long offset, int limit);
+    LogRange getBuildLogTail(Long buildId, int lines);
+    Flux<LogLine> followBuildLog(Long buildId, long fromLine);
 }
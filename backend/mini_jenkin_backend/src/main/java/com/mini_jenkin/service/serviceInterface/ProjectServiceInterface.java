@@ -1,14 +1,23 @@
 package com.mini_jenkin.service.serviceInterface;
 
 import com.mini_jenkin.entity.*;
+import com.mini_jenkin.payload.BuildLogSummary;
+import com.mini_jenkin.payload.CursorPage;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.HistoryQuery;
+import com.mini_jenkin.payload.ProjectBuildStats;
+import com.mini_jenkin.payload.ProjectLogEntry;
 import com.mini_jenkin.payload.ProjectRequest;
+import com.mini_jenkin.payload.WorkspaceUsage;
+import com.mini_jenkin.payload.WorkspaceUsageReport;
 
+import java.time.LocalDate;
 import java.util.List;
 
 public interface ProjectServiceInterface {
     public Project createProject(ProjectRequest projectRequest);
     public Project getProject(Long id);
-    public void deleteProject(Long id);
+    public DeletionJob deleteProject(Long id);
     public List<Project> getAllProjects(String userId);
 
 public ProjectConfig updateProjectInfo(ProjectConfig projectConfig, Long projectId);
@@ -17,15 +26,23 @@ public ProjectConfig updateProjectInfo(ProjectConfig projectConfig, Long project
 
     ProjectLogs getProjectLogs(Long projectId);
 
-    List<ProjectLogs> getAllProjectLogs(Long projectId);
+    CursorPage<ProjectLogEntry> getProjectLogPage(Long projectId, HistoryQuery query);
 
     BuildLogs addBuildLog(BuildLogs buildLogs);
 
     BuildLogs getBuildLogById(Integer id);
 
-    List<BuildLogs> getAllBuildLogs(Long projectId);
+    CursorPage<BuildLogSummary> getBuildHistory(Long projectId, HistoryQuery query);
 
-    Boolean clearProjectLogs(Long projectId);
+    DeletionJob clearProjectLogs(Long projectId);
+
+    DeletionJob getDeletionJob(String jobId);
+
+    ProjectBuildStats getProjectStats(Long projectId, LocalDate from, LocalDate to);
+
+    WorkspaceUsage getWorkspaceUsage(Long projectId);
+
+    WorkspaceUsageReport getWorkspaceUsageReport();
 
     Project updatePipeline(PipelineConfig pipelineConfig, Long pipelineId);
 }
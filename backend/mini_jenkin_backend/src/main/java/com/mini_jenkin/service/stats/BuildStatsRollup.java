@@ -0,0 +1,186 @@
+package com.mini_jenkin.service.stats;
+
+import com.mini_jenkin.entity.BuildStatsDaily;
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.entity.StageExecution;
+import com.mini_jenkin.entity.StageStatsDaily;
+import com.mini_jenkin.payload.DailyBuildStats;
+import com.mini_jenkin.payload.DurationPercentiles;
+import com.mini_jenkin.payload.ProjectBuildStats;
+import com.mini_jenkin.payload.StageDurationStats;
+import com.mini_jenkin.repository.BuildStatsDailyRepository;
+import com.mini_jenkin.repository.StageStatsDailyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps per project and day rollups of finished builds and their stages. Each finishing build
+ * adds itself to its day's row, so statistics over a date range only read one row per day (and
+ * stage) and merge their sketches instead of scanning the build history.
+ */
+@Component
+@Slf4j
+public class BuildStatsRollup {
+
+    @Autowired
+    private BuildStatsDailyRepository buildStatsDailyRepository;
+
+    @Autowired
+    private StageStatsDailyRepository stageStatsDailyRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // a project's day row is read, changed and written back by one finishing build at a time
+    private final Map<Long, Object> projectLocks = new ConcurrentHashMap<>();
+
+    public void record(Long projectId, LocalDate day, BuildStatus status, long durationMillis, Long queueMillis, List<StageExecution> stages) {
+        synchronized (projectLocks.computeIfAbsent(projectId, id -> new Object())) {
+            transactionTemplate.executeWithoutResult(tx -> {
+                addBuild(projectId, day, status, durationMillis, queueMillis);
+                for (StageExecution stage : stages) {
+                    if (stage.getDurationMillis() != null && stage.getStatus() != BuildStatus.CANCELLED) {
+                        addStage(projectId, day, stage);
+                    }
+                }
+            });
+        }
+    }
+
+    public ProjectBuildStats stats(Long projectId, LocalDate from, LocalDate to) {
+        DurationSketch duration = new DurationSketch();
+        DurationSketch queueWait = new DurationSketch();
+        long builds = 0, successes = 0, failures = 0, cancelled = 0, totalDuration = 0, totalQueue = 0;
+        List<DailyBuildStats> daily = new ArrayList<>();
+        for (BuildStatsDaily row : buildStatsDailyRepository.findAllByProjectIdAndDayBetweenOrderByDayAsc(projectId, from, to)) {
+            DurationSketch dayDuration = DurationSketch.fromBytes(row.getDurationSketch());
+            DurationSketch dayQueue = DurationSketch.fromBytes(row.getQueueSketch());
+            daily.add(DailyBuildStats.builder()
+                    .day(row.getDay())
+                    .builds(row.getBuilds())
+                    .successes(row.getSuccesses())
+                    .failures(row.getFailures())
+                    .cancelled(row.getCancelled())
+                    .successRate(successRate(row.getSuccesses(), row.getFailures()))
+                    .duration(percentiles(dayDuration, row.getTotalDurationMillis()))
+                    .queueWait(percentiles(dayQueue, row.getTotalQueueMillis()))
+                    .build());
+            duration.merge(dayDuration);
+            queueWait.merge(dayQueue);
+            builds += row.getBuilds();
+            successes += row.getSuccesses();
+            failures += row.getFailures();
+            cancelled += row.getCancelled();
+            totalDuration += row.getTotalDurationMillis();
+            totalQueue += row.getTotalQueueMillis();
+        }
+
+        Map<String, StageTotals> stageTotals = new TreeMap<>();
+        for (StageStatsDaily row : stageStatsDailyRepository.findAllByProjectIdAndDayBetweenOrderByDayAsc(projectId, from, to)) {
+            StageTotals totals = stageTotals.computeIfAbsent(row.getStageName(), name -> new StageTotals());
+            totals.runs += row.getRuns();
+            totals.failures += row.getFailures();
+            totals.totalDurationMillis += row.getTotalDurationMillis();
+            totals.sketch.merge(DurationSketch.fromBytes(row.getDurationSketch()));
+        }
+        List<StageDurationStats> stages = new ArrayList<>();
+        stageTotals.forEach((name, totals) -> stages.add(StageDurationStats.builder()
+                .stageName(name)
+                .runs(totals.runs)
+                .failures(totals.failures)
+                .duration(percentiles(totals.sketch, totals.totalDurationMillis))
+                .build()));
+
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        return ProjectBuildStats.builder()
+                .projectId(projectId)
+                .from(from)
+                .to(to)
+                .builds(builds)
+                .successes(successes)
+                .failures(failures)
+                .cancelled(cancelled)
+                .successRate(successRate(successes, failures))
+                .buildsPerDay(days > 0 ? (double) builds / days : 0)
+                .duration(percentiles(duration, totalDuration))
+                .queueWait(percentiles(queueWait, totalQueue))
+                .daily(daily)
+                .stages(stages)
+                .build();
+    }
+
+    public void deleteProjectStats(Long projectId) {
+        buildStatsDailyRepository.deleteAllByProjectId(projectId);
+        stageStatsDailyRepository.deleteAllByProjectId(projectId);
+    }
+
+    private void addBuild(Long projectId, LocalDate day, BuildStatus status, long durationMillis, Long queueMillis) {
+        BuildStatsDaily row = buildStatsDailyRepository.findByProjectIdAndDay(projectId, day)
+                .orElseGet(() -> BuildStatsDaily.builder().projectId(projectId).day(day).build());
+        row.setBuilds(row.getBuilds() + 1);
+        switch (status) {
+            case SUCCESS -> row.setSuccesses(row.getSuccesses() + 1);
+            case CANCELLED -> row.setCancelled(row.getCancelled() + 1);
+            default -> row.setFailures(row.getFailures() + 1);
+        }
+        // a cancelled build's run time says nothing about how long builds take
+        if (status != BuildStatus.CANCELLED) {
+            DurationSketch sketch = DurationSketch.fromBytes(row.getDurationSketch());
+            sketch.add(durationMillis);
+            row.setDurationSketch(sketch.toBytes());
+            row.setTotalDurationMillis(row.getTotalDurationMillis() + durationMillis);
+        }
+        if (queueMillis != null) {
+            DurationSketch sketch = DurationSketch.fromBytes(row.getQueueSketch());
+            sketch.add(queueMillis);
+            row.setQueueSketch(sketch.toBytes());
+            row.setTotalQueueMillis(row.getTotalQueueMillis() + queueMillis);
+        }
+        buildStatsDailyRepository.save(row);
+    }
+
+    private void addStage(Long projectId, LocalDate day, StageExecution stage) {
+        StageStatsDaily row = stageStatsDailyRepository.findByProjectIdAndDayAndStageName(projectId, day, stage.getStageName())
+                .orElseGet(() -> StageStatsDaily.builder().projectId(projectId).day(day).stageName(stage.getStageName()).build());
+        row.setRuns(row.getRuns() + 1);
+        if (stage.getStatus() != BuildStatus.SUCCESS) {
+            row.setFailures(row.getFailures() + 1);
+        }
+        DurationSketch sketch = DurationSketch.fromBytes(row.getDurationSketch());
+        sketch.add(stage.getDurationMillis());
+        row.setDurationSketch(sketch.toBytes());
+        row.setTotalDurationMillis(row.getTotalDurationMillis() + stage.getDurationMillis());
+        stageStatsDailyRepository.save(row);
+    }
+
+    private static Double successRate(long successes, long failures) {
+        long decided = successes + failures;
+        return decided == 0 ? null : (double) successes / decided;
+    }
+
+    private static DurationPercentiles percentiles(DurationSketch sketch, long totalMillis) {
+        return DurationPercentiles.builder()
+                .p50(sketch.quantile(0.50))
+                .p95(sketch.quantile(0.95))
+                .p99(sketch.quantile(0.99))
+                .mean(sketch.getCount() == 0 ? null : totalMillis / sketch.getCount())
+                .build();
+    }
+
+    private static class StageTotals {
+        private long runs;
+        private long failures;
+        private long totalDurationMillis;
+        private final DurationSketch sketch = new DurationSketch();
+    }
+}
@@ -0,0 +1,119 @@
+package com.mini_jenkin.service.stats;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantile sketch for durations in milliseconds. Values fall into logarithmic buckets whose width
+ * grows with the value, so any quantile is within 1% of the true value while the sketch stays a
+ * few hundred bytes however many values it holds. Sketches merge by adding bucket counts, which
+ * is what lets daily rollups be combined into any date range.
+ */
+public class DurationSketch {
+
+    private static final byte VERSION = 1;
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    // values of 0 ms have no logarithm and are counted apart
+    private long zeroCount;
+    private long count;
+
+    public void add(long millis) {
+        if (millis <= 0) {
+            zeroCount++;
+        } else {
+            buckets.merge(bucketOf(millis), 1L, Long::sum);
+        }
+        count++;
+    }
+
+    public void merge(DurationSketch other) {
+        other.buckets.forEach((bucket, bucketCount) -> buckets.merge(bucket, bucketCount, Long::sum));
+        zeroCount += other.zeroCount;
+        count += other.count;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * The value at quantile q (0..1), or null when the sketch is empty.
+     */
+    public Long quantile(double q) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        if (rank < zeroCount) {
+            return 0L;
+        }
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+            seen += entry.getValue();
+            if (seen > rank) {
+                return valueOf(entry.getKey());
+            }
+        }
+        return valueOf(buckets.lastKey());
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + buckets.size() * 8);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(zeroCount);
+            out.writeInt(buckets.size());
+            for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+                out.writeShort(entry.getKey());
+                out.writeLong(entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static DurationSketch fromBytes(byte[] data) {
+        DurationSketch sketch = new DurationSketch();
+        if (data == null || data.length == 0) {
+            return sketch;
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported sketch version " + version);
+            }
+            sketch.zeroCount = in.readLong();
+            sketch.count = sketch.zeroCount;
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                int bucket = in.readShort();
+                long bucketCount = in.readLong();
+                sketch.buckets.put(bucket, bucketCount);
+                sketch.count += bucketCount;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sketch;
+    }
+
+    private static int bucketOf(long millis) {
+        return (int) Math.ceil(Math.log(millis) / LOG_GAMMA);
+    }
+
+    // midpoint of the bucket (GAMMA^(i-1), GAMMA^i], off by at most RELATIVE_ACCURACY from anything in it
+    private static long valueOf(int bucket) {
+        return Math.round(2 * Math.pow(GAMMA, bucket) / (GAMMA + 1));
+    }
+}
@@ -0,0 +1,133 @@
+package com.mini_jenkin.service.trace;
+
+import com.mini_jenkin.payload.BuildTraceData;
+import com.mini_jenkin.payload.ProcessSample;
+import com.mini_jenkin.payload.TraceSpan;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Timeline of one build, filled in by the code running it: spans for queueing, checkout, stages,
+ * output writes and persistence, plus resource samples of the stage processes. Span ids start at
+ * 1; id 0 is the root span added when the build is done.
+ */
+public class BuildTrace {
+
+    public static final int LANE_PIPELINE = 1;
+    public static final int LANE_OUTPUT = 2;
+    static final int ROOT_SPAN_ID = 0;
+
+    private static final int MAX_SPANS = 10_000;
+    private static final int MAX_SAMPLES = 20_000;
+
+    // wall clock anchor, spans are timed with nanoTime so they do not jump with clock adjustments
+    private final long startEpochMicros = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+    private final long startNanos = System.nanoTime();
+
+    private final List<TraceSpan> spans = new ArrayList<>();
+    private final List<ProcessSample> samples = new ArrayList<>();
+    private int nextSpanId = ROOT_SPAN_ID + 1;
+    private int droppedSpans;
+
+    public long nowMicros() {
+        return startEpochMicros + (System.nanoTime() - startNanos) / 1000;
+    }
+
+    public static long toEpochMicros(LocalDateTime time) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, time.atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    public Span start(String name, String category) {
+        return start(name, category, LANE_PIPELINE);
+    }
+
+    public Span start(String name, String category, int lane) {
+        return new Span(name, category, lane, nowMicros());
+    }
+
+    public synchronized void add(String name, String category, int lane, long startMicros, long endMicros, Map<String, Object> attributes) {
+        if (spans.size() >= MAX_SPANS) {
+            droppedSpans++;
+            return;
+        }
+        spans.add(TraceSpan.builder()
+                .id(nextSpanId++)
+                .parentId(ROOT_SPAN_ID)
+                .name(name)
+                .category(category)
+                .lane(lane)
+                .startMicros(startMicros)
+                .durationMicros(Math.max(endMicros - startMicros, 0))
+                .attributes(attributes)
+                .build());
+    }
+
+    public synchronized void addSample(ProcessSample sample) {
+        if (samples.size() < MAX_SAMPLES) {
+            samples.add(sample);
+        }
+    }
+
+    /**
+     * Closes the trace with a root span covering the whole build, from being queued until now.
+     */
+    public synchronized BuildTraceData finish(BuildTraceData header, long rootStartMicros, Map<String, Object> rootAttributes) {
+        List<TraceSpan> all = new ArrayList<>(spans.size() + 1);
+        long end = nowMicros();
+        all.add(TraceSpan.builder()
+                .id(ROOT_SPAN_ID)
+                .name("build " + header.getBuildId())
+                .category("build")
+                .lane(LANE_PIPELINE)
+                .startMicros(rootStartMicros)
+                .durationMicros(Math.max(end - rootStartMicros, 0))
+                .attributes(rootAttributes)
+                .build());
+        all.addAll(spans);
+        header.setSpans(all);
+        header.setSamples(new ArrayList<>(samples));
+        header.setDroppedSpans(droppedSpans);
+        return header;
+    }
+
+    /**
+     * An open span, recorded when closed.
+     */
+    public class Span implements AutoCloseable {
+        private final String name;
+        private final String category;
+        private final int lane;
+        private final long startMicros;
+        private final Map<String, Object> attributes = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Span(String name, String category, int lane, long startMicros) {
+            this.name = name;
+            this.category = category;
+            this.lane = lane;
+            this.startMicros = startMicros;
+        }
+
+        public Span attr(String key, Object value) {
+            if (value != null) {
+                attributes.put(key, value);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                add(name, category, lane, startMicros, nowMicros(), attributes);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.mini_jenkin.service.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.BuildStatus;
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.payload.BuildTraceData;
+import com.mini_jenkin.payload.ProcessSample;
+import com.mini_jenkin.payload.TraceFormat;
+import com.mini_jenkin.payload.TraceSpan;
+import com.mini_jenkin.service.logstore.BuildLogStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores a finished build's trace next to its log and converts it to the Chrome Trace Event
+ * format or to OTLP/JSON on download.
+ */
+@Component
+@Slf4j
+public class BuildTraceService {
+
+    private static final String SERVICE_NAME = "mini-jenkin";
+
+    @Autowired
+    private BuildLogStore buildLogStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public void save(Build build, BuildTrace trace, BuildStatus status, String commitSha) {
+        Map<String, Object> rootAttributes = new LinkedHashMap<>();
+        rootAttributes.put("build.id", build.getId());
+        if (build.getBuildNumber() != null) {
+            rootAttributes.put("build.number", build.getBuildNumber());
+        }
+        rootAttributes.put("project.id", build.getProjectId());
+        rootAttributes.put("build.status", status.name());
+        if (build.getTrigger() != null) {
+            rootAttributes.put("build.trigger", build.getTrigger().name());
+        }
+        if (commitSha != null) {
+            rootAttributes.put("vcs.commit", commitSha);
+        }
+        BuildTraceData header = BuildTraceData.builder()
+                .buildId(build.getId())
+                .projectId(build.getProjectId())
+                .buildNumber(build.getBuildNumber())
+                .status(status.name())
+                .commitSha(commitSha)
+                .build();
+        long rootStart = build.getQueuedAt() != null ? BuildTrace.toEpochMicros(build.getQueuedAt()) : trace.nowMicros();
+        try {
+            buildLogStore.writeTrace(build.getId(), objectMapper.writeValueAsBytes(trace.finish(header, rootStart, rootAttributes)));
+        } catch (IOException e) {
+            log.warn("Could not store trace of build {}: {}", build.getId(), e.getMessage());
+        }
+    }
+
+    public Map<String, Object> export(Long buildId, TraceFormat format) {
+        BuildTraceData trace;
+        try {
+            trace = objectMapper.readValue(buildLogStore.readTrace(buildId), BuildTraceData.class);
+        } catch (IOException e) {
+            throw new GeneralException("Could not read trace for build " + buildId + ": " + e.getMessage());
+        }
+        return format == TraceFormat.OTLP ? toOtlp(trace) : toChromeTrace(trace);
+    }
+
+    private Map<String, Object> toChromeTrace(BuildTraceData trace) {
+        List<Map<String, Object>> events = new ArrayList<>();
+        events.add(metadata("process_name", 0, "build " + trace.getBuildId() + (trace.getBuildNumber() != null ? " (#" + trace.getBuildNumber() + ")" : "")));
+        events.add(metadata("thread_name", BuildTrace.LANE_PIPELINE, "pipeline"));
+        events.add(metadata("thread_name", BuildTrace.LANE_OUTPUT, "output"));
+        for (TraceSpan span : trace.getSpans()) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("name", span.getName());
+            event.put("cat", span.getCategory());
+            event.put("ph", "X");
+            event.put("ts", span.getStartMicros());
+            event.put("dur", span.getDurationMicros());
+            event.put("pid", 1);
+            event.put("tid", span.getLane());
+            event.put("args", span.getAttributes() != null ? span.getAttributes() : Map.of());
+            events.add(event);
+        }
+        for (ProcessSample sample : trace.getSamples()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            if (sample.getCpuPercent() != null) {
+                values.put("cpu %", Math.round(sample.getCpuPercent() * 10) / 10.0);
+            }
+            values.put("rss MB", Math.round(sample.getRssBytes() / 1048576.0 * 10) / 10.0);
+            values.put("processes", sample.getProcesses());
+            events.add(Map.of("name", "stage processes", "ph", "C", "ts", sample.getTimeMicros(), "pid", 1, "args", values));
+        }
+        Map<String, Object> chrome = new LinkedHashMap<>();
+        chrome.put("traceEvents", events);
+        chrome.put("displayTimeUnit", "ms");
+        chrome.put("otherData", Map.of("buildId", trace.getBuildId(), "projectId", trace.getProjectId(),
+                "status", String.valueOf(trace.getStatus()), "droppedSpans", trace.getDroppedSpans()));
+        return chrome;
+    }
+
+    private Map<String, Object> toOtlp(BuildTraceData trace) {
+        String traceId = String.format("%032x", trace.getBuildId());
+        List<Map<String, Object>> spans = new ArrayList<>();
+        for (TraceSpan span : trace.getSpans()) {
+            Map<String, Object> otlpSpan = new LinkedHashMap<>();
+            otlpSpan.put("traceId", traceId);
+            otlpSpan.put("spanId", spanId(span.getId()));
+            if (span.getParentId() != null) {
+                otlpSpan.put("parentSpanId", spanId(span.getParentId()));
+            }
+            otlpSpan.put("name", span.getName());
+            // SPAN_KIND_INTERNAL
+            otlpSpan.put("kind", 1);
+            otlpSpan.put("startTimeUnixNano", String.valueOf(span.getStartMicros() * 1000));
+            otlpSpan.put("endTimeUnixNano", String.valueOf((span.getStartMicros() + span.getDurationMicros()) * 1000));
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            attributes.put("mini_jenkin.category", span.getCategory());
+            if (span.getAttributes() != null) {
+                attributes.putAll(span.getAttributes());
+            }
+            otlpSpan.put("attributes", attributes(attributes));
+            if (span.getId() == BuildTrace.ROOT_SPAN_ID) {
+                // process samples travel as events on the root span
+                otlpSpan.put("events", trace.getSamples().stream().map(this::sampleEvent).toList());
+            }
+            spans.add(otlpSpan);
+        }
+        return Map.of("resourceSpans", List.of(Map.of(
+                "resource", Map.of("attributes", attributes(Map.of("service.name", SERVICE_NAME))),
+                "scopeSpans", List.of(Map.of(
+                        "scope", Map.of("name", SERVICE_NAME + ".build"),
+                        "spans", spans)))));
+    }
+
+    private Map<String, Object> sampleEvent(ProcessSample sample) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("process.pid", sample.getPid());
+        values.put("process.count", sample.getProcesses());
+        values.put("process.memory.rss", sample.getRssBytes());
+        if (sample.getCpuPercent() != null) {
+            values.put("process.cpu.percent", sample.getCpuPercent());
+        }
+        return Map.of("timeUnixNano", String.valueOf(sample.getTimeMicros() * 1000), "name", "process.sample", "attributes", attributes(values));
+    }
+
+    private static List<Map<String, Object>> attributes(Map<String, Object> values) {
+        List<Map<String, Object>> attributes = new ArrayList<>();
+        values.forEach((key, value) -> attributes.add(Map.of("key", key, "value", anyValue(value))));
+        return attributes;
+    }
+
+    // OTLP/JSON carries 64-bit integers as strings
+    private static Map<String, Object> anyValue(Object value) {
+        if (value instanceof Boolean bool) {
+            return Map.of("boolValue", bool);
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return Map.of("intValue", String.valueOf(value));
+        }
+        if (value instanceof Number number) {
+            return Map.of("doubleValue", number.doubleValue());
+        }
+        return Map.of("stringValue", String.valueOf(value));
+    }
+
+    private static Map<String, Object> metadata(String name, int tid, String value) {
+        return Map.of("name", name, "ph", "M", "pid", 1, "tid", tid, "args", Map.of("name", value));
+    }
+
+    private static String spanId(int id) {
+        // span ids must not be all zero
+        return String.format("%016x", id + 1L);
+    }
+}
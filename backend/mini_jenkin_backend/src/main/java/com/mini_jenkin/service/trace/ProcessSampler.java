@@ -0,0 +1,136 @@
+package com.mini_jenkin.service.trace;
+
+import com.mini_jenkin.payload.ProcessSample;
+import com.mini_jenkin.service.projectbuild.BuildContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Samples CPU time and resident memory of the process tree a build stage is running, from
+ * /proc on Linux, and adds the samples to the build's trace. Elsewhere sampling is skipped.
+ */
+@Component
+@Slf4j
+public class ProcessSampler {
+
+    private static final Path PROC = Path.of("/proc");
+    // USER_HZ, the unit of utime and stime in /proc/<pid>/stat; 100 on every common Linux build
+    private static final long CLOCK_TICKS_PER_SECOND = 100;
+
+    @Autowired
+    @Qualifier("traceSamplerExecutor")
+    private ScheduledExecutorService traceSamplerExecutor;
+
+    // 0 turns sampling off
+    @Value("${build.trace.sample-millis:1000}")
+    private long sampleMillis;
+
+    /**
+     * Starts sampling the build's current stage process until the returned future is cancelled,
+     * or returns null when sampling is not available.
+     */
+    public ScheduledFuture<?> start(BuildContext context) {
+        if (sampleMillis <= 0 || !Files.isDirectory(PROC)) {
+            return null;
+        }
+        State state = new State();
+        return traceSamplerExecutor.scheduleAtFixedRate(() -> sample(context, state), sampleMillis, sampleMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample(BuildContext context, State state) {
+        try {
+            Process process = context.getProcess();
+            if (process == null || !process.isAlive()) {
+                state.pid = -1;
+                return;
+            }
+            long ticks = 0;
+            long rssBytes = 0;
+            int processes = 0;
+            try (Stream<ProcessHandle> tree = Stream.concat(Stream.of(process.toHandle()), process.descendants())) {
+                for (ProcessHandle handle : (Iterable<ProcessHandle>) tree::iterator) {
+                    long[] stat = readStat(handle.pid());
+                    if (stat != null) {
+                        ticks += stat[0];
+                        rssBytes += stat[1];
+                        processes++;
+                    }
+                }
+            }
+            if (processes == 0) {
+                return;
+            }
+            long now = System.nanoTime();
+            Double cpuPercent = null;
+            if (state.pid == process.pid()) {
+                // children that exited since the last sample take their ticks with them, never report below zero
+                double cpuSeconds = Math.max(ticks - state.ticks, 0) / (double) CLOCK_TICKS_PER_SECOND;
+                cpuPercent = cpuSeconds / ((now - state.nanos) / 1e9) * 100;
+            }
+            state.pid = process.pid();
+            state.ticks = ticks;
+            state.nanos = now;
+            context.getTrace().addSample(ProcessSample.builder()
+                    .timeMicros(context.getTrace().nowMicros())
+                    .pid(process.pid())
+                    .processes(processes)
+                    .cpuPercent(cpuPercent)
+                    .rssBytes(rssBytes)
+                    .build());
+        } catch (Exception e) {
+            // an exception would stop the schedule, a missed sample does not matter
+            log.debug("Process sample for build {} failed: {}", context.getBuildId(), e.getMessage());
+        }
+    }
+
+    /**
+     * utime + stime in clock ticks and resident bytes of one process, or null once it is gone.
+     */
+    private static long[] readStat(long pid) {
+        Path dir = PROC.resolve(String.valueOf(pid));
+        String stat;
+        String status;
+        try {
+            stat = Files.readString(dir.resolve("stat"));
+            status = Files.readString(dir.resolve("status"));
+        } catch (IOException e) {
+            return null;
+        }
+        // the command name may contain spaces, the fields after it start with the process state (field 3)
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+        long utime = Long.parseLong(fields[11]);
+        long stime = Long.parseLong(fields[12]);
+        return new long[]{utime + stime, vmRssBytes(status)};
+    }
+
+    /**
+     * VmRSS from /proc/<pid>/status, which the kernel reports in kB whatever the page size is.
+     * Zombies and kernel threads have no such line and count as 0.
+     */
+    static long vmRssBytes(String status) {
+        for (String line : status.split("\n")) {
+            if (line.startsWith("VmRSS:")) {
+                String[] parts = line.substring("VmRSS:".length()).trim().split("\\s+");
+                return Long.parseLong(parts[0]) * 1024;
+            }
+        }
+        return 0;
+    }
+
+    private static class State {
+        private long pid = -1;
+        private long ticks;
+        private long nanos;
+    }
+}
@@ -0,0 +1,345 @@
+package com.mini_jenkin.service.workspace;
+
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.repository.ProjectConfigRepository;
+import com.mini_jenkin.utility.GitRefs;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RefSpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * One bare mirror per repository URL under REPO_BASE_DIR/.mirrors, shared by every project and
+ * build of that repository. Mirrors are fetched incrementally and workspaces borrow their objects
+ * through git alternates, so a checkout copies no objects and N projects of one repository cost
+ * one fetch.
+ */
+@Component
+@Slf4j
+public class RepositoryMirrorCache {
+
+    public static final String MIRROR_DIR = ".mirrors";
+    private static final RefSpec ALL_BRANCHES = new RefSpec("+" + Constants.R_HEADS + "*:" + Constants.R_HEADS + "*");
+    private static final String KEEP_REFS = "refs/keep/";
+    // the mirror's shallow boundary as last copied into a workspace
+    private static final String BORROWED_SHALLOW = "mirror-shallow";
+
+    @Value("${default.REPO_BASE_DIR}")
+    private String defaultRepoPath;
+
+    @Value("${build.git.mirror.enabled:true}")
+    private boolean enabled;
+
+    @Value("${build.git.mirror.keep-days:7}")
+    private int keepDays;
+
+    @Autowired
+    @Qualifier("cleanupExecutor")
+    private ExecutorService cleanupExecutor;
+
+    @Autowired
+    private ProjectConfigRepository projectConfigRepository;
+
+    private Path root;
+    // one fetch at a time per mirror, keyed by mirror directory name
+    private final Map<String, Object> mirrorLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(defaultRepoPath, MIRROR_DIR);
+        Files.createDirectories(root);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Brings the mirror of a repository up to date for one branch, or for all branches when
+     * singleBranch is off, and resolves the commit to build: the given SHA or else the branch head.
+     * A null branch means the remote's default branch.
+     */
+    public MirrorCommit sync(String url, String branch, String commitSha, int depth, boolean singleBranch, ProgressMonitor monitor) throws Exception {
+        String key = keyOf(url);
+        File directory = root.resolve(key).toFile();
+        synchronized (mirrorLocks.computeIfAbsent(key, k -> new Object())) {
+            try (Git git = open(directory, url)) {
+                Repository repository = git.getRepository();
+                if (branch == null) {
+                    branch = defaultBranch(url);
+                }
+                FetchCommand fetch = git.fetch().setRemote(GitRefs.REMOTE).setProgressMonitor(monitor).setRemoveDeletedRefs(!singleBranch)
+                        .setRefSpecs(singleBranch
+                                ? new RefSpec("+" + Constants.R_HEADS + branch + ":" + Constants.R_HEADS + branch)
+                                : ALL_BRANCHES);
+                boolean shallow = GitRefs.isShallow(repository);
+                if (depth == 0 && shallow) {
+                    // a project wanting full history shares the mirror with shallow ones
+                    fetch.setUnshallow(true);
+                } else if (depth > 0 && (shallow || repository.getRefDatabase().getRefsByPrefix(Constants.R_HEADS).isEmpty())) {
+                    // once the mirror has full history, shallow fetches would cut it off again
+                    fetch.setDepth(depth);
+                }
+                fetch.call();
+
+                ObjectId head = repository.resolve(Constants.R_HEADS + branch);
+                ObjectId commit = head;
+                if (commitSha != null) {
+                    commit = GitRefs.fetchCommit(git, commitSha, GitRefs.isShallow(repository) ? depth : 0, ALL_BRANCHES, monitor);
+                    if (commit == null) {
+                        throw new GeneralException("Commit " + commitSha + " not found in " + url);
+                    }
+                } else if (commit == null) {
+                    throw new GeneralException("Branch " + branch + " not found in " + url);
+                }
+                keep(repository, commit);
+                return new MirrorCommit(directory, branch, head, commit);
+            }
+        }
+    }
+
+    /**
+     * Points a workspace repository at the mirror's objects and shallow boundary, so everything
+     * the mirror has fetched can be checked out there without copying. The workspace has to be
+     * reopened before it sees the borrowed objects.
+     */
+    public void borrow(Repository workspace, MirrorCommit mirror) throws IOException {
+        File gitDir = workspace.getDirectory();
+        Path alternates = gitDir.toPath().resolve("objects").resolve("info").resolve("alternates");
+        String objects = new File(mirror.directory(), "objects").getAbsolutePath();
+        List<String> existing = Files.exists(alternates) ? Files.readAllLines(alternates) : List.of();
+        if (!existing.contains(objects)) {
+            Files.createDirectories(alternates.getParent());
+            Files.writeString(alternates, String.join("\n", concat(existing, objects)) + "\n");
+        }
+
+        // commits the mirror only has without parents must be marked the same way here. The
+        // boundary copied last time is replaced, it is gone once the mirror was unshallowed; a
+        // boundary the workspace fetched itself before it used the mirror is kept
+        Path shallow = gitDir.toPath().resolve("shallow");
+        Path borrowed = gitDir.toPath().resolve(BORROWED_SHALLOW);
+        TreeSet<String> mirrorBoundary = readLines(mirror.directory().toPath().resolve("shallow"));
+        TreeSet<String> boundary = readLines(shallow);
+        boundary.removeAll(readLines(borrowed));
+        boundary.addAll(mirrorBoundary);
+        if (boundary.isEmpty()) {
+            Files.deleteIfExists(shallow);
+        } else {
+            Files.writeString(shallow, String.join("\n", boundary) + "\n");
+        }
+        Files.writeString(borrowed, String.join("\n", mirrorBoundary) + "\n");
+
+        if (mirror.head() != null) {
+            RefUpdate update = workspace.updateRef(Constants.R_REMOTES + GitRefs.REMOTE + "/" + mirror.branch());
+            update.setNewObjectId(mirror.head());
+            update.setForceUpdate(true);
+            update.update();
+        }
+    }
+
+    /**
+     * Deletes the mirror of a repository once no project builds from it anymore. Checked under the
+     * mirror's lock, so a project of the same repository syncing meanwhile either keeps the mirror
+     * or fetches it anew.
+     */
+    public void removeUnreferenced(String url) {
+        if (url == null || url.isBlank()) {
+            return;
+        }
+        String key = keyOf(url);
+        synchronized (mirrorLocks.computeIfAbsent(key, k -> new Object())) {
+            if (!referencedKeys().contains(key)) {
+                WorkspaceManager.deleteTree(root.resolve(key));
+                log.info("Removed mirror {}, no project uses it anymore", key);
+            }
+        }
+    }
+
+    /**
+     * Repacks every mirror, so the packs left by each incremental fetch are merged, and drops
+     * objects nothing needs anymore. Mirrors no project uses anymore, e.g. after its repository
+     * URL was changed, are removed instead. Commits handed to workspaces stay for keep-days after they
+     * were last used: with shallow fetches, a branch's previous head is no longer reachable from
+     * the branch, but workspaces still have it checked out.
+     */
+    @Scheduled(fixedDelayString = "${build.git.mirror.gc-millis:86400000}", initialDelayString = "${build.git.mirror.gc-millis:86400000}")
+    public void scheduleGarbageCollection() {
+        if (enabled) {
+            cleanupExecutor.submit(this::collectGarbage);
+        }
+    }
+
+    void collectGarbage() {
+        List<Path> mirrors;
+        try (Stream<Path> directories = Files.list(root)) {
+            mirrors = directories.filter(path -> Files.isDirectory(path.resolve("objects"))).toList();
+        } catch (IOException e) {
+            log.warn("Could not list mirrors in {}: {}", root, e.getMessage());
+            return;
+        }
+        long expire = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(keepDays);
+        String oldestKept = LocalDate.now().minusDays(keepDays).format(DateTimeFormatter.BASIC_ISO_DATE);
+        for (Path mirror : mirrors) {
+            String key = mirror.getFileName().toString();
+            synchronized (mirrorLocks.computeIfAbsent(key, k -> new Object())) {
+                if (!Files.isDirectory(mirror)) {
+                    continue;
+                }
+                if (!referencedKeys().contains(key)) {
+                    WorkspaceManager.deleteTree(mirror);
+                    log.info("Removed mirror {}, no project uses it anymore", key);
+                    continue;
+                }
+                try (Git git = Git.open(mirror.toFile())) {
+                    Repository repository = git.getRepository();
+                    for (Ref ref : repository.getRefDatabase().getRefsByPrefix(KEEP_REFS)) {
+                        String day = ref.getName().substring(KEEP_REFS.length()).split("/")[0];
+                        if (day.compareTo(oldestKept) < 0) {
+                            RefUpdate delete = repository.updateRef(ref.getName());
+                            delete.setForceUpdate(true);
+                            delete.delete();
+                        }
+                    }
+                    git.gc().setExpire(new Date(expire)).call();
+                    log.info("Repacked mirror {}", key);
+                } catch (Exception e) {
+                    log.warn("Could not repack mirror {}: {}", key, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Records the commit handed out under refs/keep/<day>/, so garbage collection leaves it alone
+     * while workspaces may still have it checked out.
+     */
+    private void keep(Repository repository, ObjectId commit) throws IOException {
+        String name = KEEP_REFS + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + "/" + commit.name();
+        if (repository.exactRef(name) == null) {
+            RefUpdate update = repository.updateRef(name);
+            update.setNewObjectId(commit);
+            update.setForceUpdate(true);
+            update.update();
+        }
+    }
+
+    private Set<String> referencedKeys() {
+        return projectConfigRepository.findAllGithubUrls().stream()
+                .filter(url -> !url.isBlank())
+                .map(RepositoryMirrorCache::keyOf)
+                .collect(Collectors.toSet());
+    }
+
+    private static TreeSet<String> readLines(Path file) throws IOException {
+        TreeSet<String> lines = new TreeSet<>();
+        if (Files.exists(file)) {
+            lines.addAll(Files.readAllLines(file));
+        }
+        lines.removeIf(String::isBlank);
+        return lines;
+    }
+
+    private Git open(File directory, String url) throws Exception {
+        Git git = new File(directory, "objects").isDirectory()
+                ? Git.open(directory)
+                : Git.init().setBare(true).setDirectory(directory).call();
+        // the URL may carry refreshed credentials, so it is rewritten on every fetch
+        StoredConfig config = git.getRepository().getConfig();
+        if (!url.equals(config.getString("remote", GitRefs.REMOTE, "url"))) {
+            config.setString("remote", GitRefs.REMOTE, "url", url);
+            config.save();
+        }
+        return git;
+    }
+
+    private String defaultBranch(String url) throws Exception {
+        Map<String, Ref> refs = Git.lsRemoteRepository().setRemote(url).callAsMap();
+        Ref head = refs.get(Constants.HEAD);
+        if (head == null) {
+            throw new GeneralException("Could not determine the default branch of " + url);
+        }
+        if (head.isSymbolic()) {
+            return Repository.shortenRefName(head.getTarget().getName());
+        }
+        // servers that do not advertise the symref: the branch HEAD points at
+        for (Ref ref : refs.values()) {
+            if (ref.getName().startsWith(Constants.R_HEADS) && head.getObjectId().equals(ref.getObjectId())) {
+                return Repository.shortenRefName(ref.getName());
+            }
+        }
+        throw new GeneralException("Could not determine the default branch of " + url);
+    }
+
+    /**
+     * Directory name of a repository's mirror. URLs differing only in credentials, case of the
+     * host, a trailing slash or a .git suffix share a mirror.
+     */
+    static String keyOf(String url) {
+        String normalized = url.trim();
+        try {
+            URI uri = URI.create(normalized);
+            if (uri.getHost() != null) {
+                normalized = uri.getHost().toLowerCase(Locale.ROOT) + (uri.getPort() > 0 ? ":" + uri.getPort() : "") + uri.getPath();
+            }
+        } catch (IllegalArgumentException e) {
+            // scp-like git@host:owner/repo, used as is
+        }
+        normalized = normalized.replaceAll("/+$", "").replaceAll("\\.git$", "");
+        String readable = normalized.replaceAll("[^A-Za-z0-9._-]+", "_");
+        if (readable.length() > 80) {
+            readable = readable.substring(readable.length() - 80);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return readable + "-" + HexFormat.of().formatHex(digest, 0, 6) + ".git";
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<String> concat(List<String> lines, String line) {
+        List<String> all = new ArrayList<>(lines);
+        all.removeIf(String::isBlank);
+        all.add(line);
+        return all;
+    }
+
+    public record MirrorCommit(File directory, String branch, ObjectId head, ObjectId commit) {
+    }
+}
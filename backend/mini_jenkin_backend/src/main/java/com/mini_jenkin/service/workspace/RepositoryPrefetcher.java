@@ -0,0 +1,88 @@
+package com.mini_jenkin.service.workspace;
+
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.service.metrics.BuildMetrics;
+import com.mini_jenkin.utility.CloneStage;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Fetches a pushed commit into the repository's mirror as soon as its webhook arrives, so the
+ * objects are local by the time the debounced build is dequeued. At most one prefetch per
+ * repository runs at a time; pushes arriving meanwhile collapse into one follow-up fetch of the
+ * latest of them.
+ */
+@Component
+@Slf4j
+public class RepositoryPrefetcher {
+
+    @Autowired
+    private CloneStage cloneStage;
+
+    @Autowired
+    private BuildMetrics buildMetrics;
+
+    @Autowired
+    @Qualifier("repositoryPrefetchExecutor")
+    private ExecutorService repositoryPrefetchExecutor;
+
+    @Value("${build.git.prefetch.enabled:true}")
+    private boolean enabled;
+
+    // latest push waiting per mirror; an entry exists while a prefetch for that mirror is scheduled or running
+    private final Map<String, Prefetch> pending = new ConcurrentHashMap<>();
+
+    public void prefetch(Project project, String branch, String commitSha) {
+        if (!enabled || project.getProjectConfig() == null || project.getProjectConfig().getGithubUrl() == null) {
+            return;
+        }
+        String key = RepositoryMirrorCache.keyOf(project.getProjectConfig().getGithubUrl());
+        if (pending.put(key, new Prefetch(project, branch, commitSha)) != null) {
+            return;
+        }
+        try {
+            repositoryPrefetchExecutor.submit(() -> run(key));
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+        }
+    }
+
+    private void run(String key) {
+        Prefetch prefetch = pending.get(key);
+        while (prefetch != null) {
+            Timer.Sample sample = buildMetrics.start();
+            try {
+                if (cloneStage.prefetch(prefetch.project(), prefetch.branch(), prefetch.commitSha())) {
+                    buildMetrics.recordCheckout(sample, "prefetch", true);
+                    log.info("Prefetched {} for project {}", prefetch.commitSha(), prefetch.project().getProjectId());
+                }
+            } catch (Exception e) {
+                // the build fetches again, a failed prefetch only costs it the head start
+                buildMetrics.recordCheckout(sample, "prefetch", false);
+                log.warn("Prefetch of {} for project {} failed: {}", prefetch.commitSha(), prefetch.project().getProjectId(), e.getMessage());
+            }
+            if (pending.remove(key, prefetch)) {
+                return;
+            }
+            prefetch = pending.get(key);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        repositoryPrefetchExecutor.shutdownNow();
+    }
+
+    private record Prefetch(Project project, String branch, String commitSha) {
+    }
+}
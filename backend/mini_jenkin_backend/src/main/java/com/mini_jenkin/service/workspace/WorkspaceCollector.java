@@ -0,0 +1,131 @@
+package com.mini_jenkin.service.workspace;
+
+import com.mini_jenkin.payload.WorkspaceUsage;
+import com.mini_jenkin.payload.WorkspaceUsageReport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps workspaces within a disk budget. Idle build workspaces and old checkouts untouched for
+ * longer than stale-output-hours are always removed; once the measured total passes the high-water
+ * mark, workspaces are evicted least recently used first until it is back under the low-water
+ * mark. Sizes come from WorkspaceManager, which measures a workspace whenever a build is done with
+ * it, so a sweep never walks the tree. Mirrors and build logs are not workspaces and are left alone;
+ * RepositoryMirrorCache removes a mirror once no project uses it.
+ */
+@Component
+@Slf4j
+public class WorkspaceCollector {
+
+    @Autowired
+    private WorkspaceManager workspaceManager;
+
+    // 0 enforces no budget, stale outputs are still removed
+    @Value("${build.workspace.gc.budget-bytes:0}")
+    private long budgetBytes;
+
+    @Value("${build.workspace.gc.high-water-percent:90}")
+    private int highWaterPercent;
+
+    @Value("${build.workspace.gc.low-water-percent:75}")
+    private int lowWaterPercent;
+
+    // 0 keeps idle workspaces until the budget needs their space
+    @Value("${build.workspace.gc.stale-output-hours:24}")
+    private int staleOutputHours;
+
+    private final AtomicLong evicted = new AtomicLong();
+    private volatile LocalDateTime lastCollectedAt;
+
+    @Scheduled(fixedDelayString = "${build.workspace.gc.sweep-millis:300000}", initialDelayString = "${build.workspace.gc.sweep-millis:300000}")
+    public void sweep() {
+        long freed = 0;
+        int removed = 0;
+        if (staleOutputHours > 0) {
+            long cutoff = System.currentTimeMillis() - staleOutputHours * 3_600_000L;
+            for (WorkspaceManager.WorkspaceEntry entry : List.copyOf(workspaceManager.entries())) {
+                boolean stale = entry.kind == WorkspaceManager.Kind.LEGACY || workspaceManager.isIdle(entry);
+                if (stale && entry.lastUsedMillis < cutoff) {
+                    long bytes = workspaceManager.evict(entry);
+                    freed += bytes;
+                    removed += bytes > 0 ? 1 : 0;
+                }
+            }
+        }
+
+        long used = usedBytes();
+        if (budgetBytes > 0 && used > highWaterBytes()) {
+            List<WorkspaceManager.WorkspaceEntry> candidates = workspaceManager.entries().stream()
+                    .sorted(Comparator.comparingLong(entry -> entry.lastUsedMillis))
+                    .toList();
+            for (WorkspaceManager.WorkspaceEntry entry : candidates) {
+                if (used <= lowWaterBytes()) {
+                    break;
+                }
+                long bytes = workspaceManager.evict(entry);
+                if (bytes > 0) {
+                    used -= bytes;
+                    freed += bytes;
+                    removed++;
+                }
+            }
+            if (used > lowWaterBytes()) {
+                log.warn("Workspaces still use {} bytes after collection, over the low-water mark of {}; the rest is in use", used, lowWaterBytes());
+            }
+        }
+        if (removed > 0) {
+            evicted.addAndGet(removed);
+            log.info("Workspace collection removed {} workspaces, {} bytes", removed, freed);
+        }
+        lastCollectedAt = LocalDateTime.now();
+    }
+
+    public WorkspaceUsage usage(Long projectId) {
+        return workspaceManager.usage(projectId);
+    }
+
+    public WorkspaceUsageReport report() {
+        List<WorkspaceUsage> projects = workspaceManager.entries().stream()
+                .map(entry -> entry.projectId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .sorted()
+                .map(workspaceManager::usage)
+                .toList();
+        long legacy = workspaceManager.entries().stream()
+                .filter(entry -> entry.kind == WorkspaceManager.Kind.LEGACY)
+                .mapToLong(entry -> entry.bytes)
+                .sum();
+        return WorkspaceUsageReport.builder()
+                .budgetBytes(budgetBytes)
+                .highWaterBytes(budgetBytes > 0 ? highWaterBytes() : 0)
+                .lowWaterBytes(budgetBytes > 0 ? lowWaterBytes() : 0)
+                .usedBytes(usedBytes())
+                .legacyBytes(legacy)
+                .evictedWorkspaces(evicted.get())
+                .lastCollectedAt(lastCollectedAt)
+                .projects(projects)
+                .build();
+    }
+
+    public long usedBytes() {
+        return workspaceManager.entries().stream().mapToLong(entry -> entry.bytes).sum();
+    }
+
+    private long highWaterBytes() {
+        return budgetBytes / 100 * highWaterPercent;
+    }
+
+    private long lowWaterBytes() {
+        return budgetBytes / 100 * lowWaterPercent;
+    }
+}
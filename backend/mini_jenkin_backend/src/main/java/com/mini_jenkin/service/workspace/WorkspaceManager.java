@@ -0,0 +1,534 @@
+package com.mini_jenkin.service.workspace;
+
+import com.mini_jenkin.entity.Build;
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.payload.WorkspaceUsage;
+import com.mini_jenkin.service.projectbuild.BuildContext;
+import com.mini_jenkin.service.trace.BuildTrace;
+import com.mini_jenkin.utility.CloneStage;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Leases every build its own workspace under REPO_BASE_DIR/.workspaces/<projectId>. A pristine
+ * checkout per project is brought to the build's commit and copied into the build's workspace,
+ * by reflink where the filesystem supports it, so the copy costs metadata rather than data.
+ * Without reflinks git's object files, which are never written after creation, are hardlinked
+ * and the working tree is copied. Workspaces of successful builds go back to a small per-project pool
+ * and are moved to the next build's commit, keeping their build outputs; a failed or cancelled
+ * build's workspace is thrown away.
+ */
+@Component
+@Slf4j
+public class WorkspaceManager {
+
+    public static final String WORKSPACE_DIR = ".workspaces";
+    static final String PRISTINE = "pristine";
+    private static final String SLOT_PREFIX = "build-";
+
+    @Value("${default.REPO_BASE_DIR}")
+    private String defaultRepoPath;
+
+    // AUTO, REFLINK, HARDLINK or COPY
+    @Value("${build.workspace.copy-mode:AUTO}")
+    private CopyMode copyMode;
+
+    @Value("${build.workspace.max-idle-per-project:2}")
+    private int maxIdlePerProject;
+
+    @Autowired
+    private CloneStage cloneStage;
+
+    @Autowired
+    @Qualifier("cleanupExecutor")
+    private ExecutorService cleanupExecutor;
+
+    // its own thread, a measurement must not wait behind project deletions and mirror repacks
+    @Autowired
+    @Qualifier("workspaceMeasureExecutor")
+    private ExecutorService measureExecutor;
+
+    private Path root;
+    // one checkout of the pristine copy at a time per project
+    private final Map<Long, Object> projectLocks = new ConcurrentHashMap<>();
+    // idle workspaces per project, most recently used first
+    private final Map<Long, Deque<Path>> idle = new ConcurrentHashMap<>();
+    private volatile Boolean reflinkSupported;
+    // every workspace directory with its last measured size, kept up to date as builds use them
+    private final Map<Path, WorkspaceEntry> entries = new ConcurrentHashMap<>();
+    private final Set<Path> leased = ConcurrentHashMap.newKeySet();
+    private volatile boolean linkCountReadable = true;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Path.of(defaultRepoPath, WORKSPACE_DIR);
+        Files.createDirectories(root);
+    }
+
+    /**
+     * Measures what is on disk once at startup; from then on sizes are updated per workspace as
+     * builds use them. Build workspaces left by a previous run may be half written, they are
+     * removed rather than pooled, before the build workers start so none of them is deleted
+     * under a re-queued build. Checkouts in REPO_BASE_DIR itself predate the workspace layout
+     * and are only tracked so the collector can remove them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void scanWorkspaces() {
+        try (Stream<Path> projects = Files.list(root)) {
+            for (Path project : projects.filter(Files::isDirectory).toList()) {
+                Long projectId = parseProjectId(project);
+                if (projectId == null) {
+                    continue;
+                }
+                try (Stream<Path> slots = Files.list(project)) {
+                    slots.filter(slot -> slot.getFileName().toString().startsWith(SLOT_PREFIX)).forEach(WorkspaceManager::deleteTree);
+                }
+                Path pristine = project.resolve(PRISTINE);
+                if (Files.isDirectory(pristine)) {
+                    track(projectId, pristine, Kind.PRISTINE, Files.getLastModifiedTime(pristine).toMillis());
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan {} for stale workspaces: {}", root, e.getMessage());
+        }
+        try (Stream<Path> legacy = Files.list(root.getParent())) {
+            for (Path directory : legacy.filter(path -> !path.getFileName().toString().startsWith(".") && Files.isDirectory(path.resolve(".git"))).toList()) {
+                track(null, directory, Kind.LEGACY, Files.getLastModifiedTime(directory).toMillis());
+            }
+        } catch (IOException e) {
+            log.warn("Could not scan {} for old checkouts: {}", root.getParent(), e.getMessage());
+        }
+    }
+
+    /**
+     * Brings the project's pristine checkout to the build's commit and hands out a workspace
+     * checked out at that commit that no other build is using.
+     */
+    public WorkspaceLease lease(Project project, Build build, BuildContext context) {
+        Long projectId = project.getProjectId();
+        Path projectRoot = root.resolve(String.valueOf(projectId));
+        File pristine = projectRoot.resolve(PRISTINE).toFile();
+        synchronized (projectLocks.computeIfAbsent(projectId, k -> new Object())) {
+            cloneStage.cloneOrPullGithubRepo(project, build.getBranch(), build.getCommitSha(), pristine, context);
+            String commitSha = cloneStage.headCommit(pristine);
+            String branch = cloneStage.currentBranch(pristine);
+            if (commitSha == null || branch == null) {
+                throw new GeneralException("Could not read the checkout in " + pristine);
+            }
+            track(projectId, pristine.toPath(), Kind.PRISTINE, System.currentTimeMillis());
+
+            try (BuildTrace.Span span = context.getTrace().start("prepare workspace", "workspace")) {
+                Deque<Path> pool = idle.get(projectId);
+                Path slot = pool != null ? pool.pollFirst() : null;
+                if (slot != null) {
+                    try {
+                        copyShallow(pristine.toPath(), slot);
+                        leased.add(slot);
+                        cloneStage.checkoutCommit(slot.toFile(), branch, commitSha);
+                        span.attr("reused", true);
+                        return new WorkspaceLease(projectId, slot.toFile(), commitSha);
+                    } catch (Exception e) {
+                        log.warn("Could not reuse workspace {}, creating a new one: {}", slot, e.getMessage());
+                        leased.remove(slot);
+                        discard(slot);
+                    }
+                }
+                // unique per lease, a slot of an earlier attempt at the same build may still be being deleted
+                slot = projectRoot.resolve(SLOT_PREFIX + build.getId() + "-" + UUID.randomUUID().toString().substring(0, 8));
+                try {
+                    span.attr("reused", false).attr("copy", materialize(pristine.toPath(), slot).name());
+                } catch (IOException e) {
+                    deleteTree(slot);
+                    throw new GeneralException("Could not create workspace " + slot + ": " + e.getMessage());
+                }
+                leased.add(slot);
+                return new WorkspaceLease(projectId, slot.toFile(), commitSha);
+            }
+        }
+    }
+
+    /**
+     * Returns a workspace to the project's pool, or removes it when it is not clean enough to be
+     * reused or the pool is full.
+     */
+    public void release(WorkspaceLease lease, boolean reusable) {
+        Path slot = lease.directory().toPath();
+        if (!reusable || maxIdlePerProject <= 0) {
+            leased.remove(slot);
+            discard(slot);
+            return;
+        }
+        track(lease.projectId(), slot, Kind.BUILD, System.currentTimeMillis());
+        Deque<Path> pool = idle.computeIfAbsent(lease.projectId(), k -> new ConcurrentLinkedDeque<>());
+        // pooled before it stops counting as leased, so the collector never sees it as neither
+        pool.offerFirst(slot);
+        leased.remove(slot);
+        while (pool.size() > maxIdlePerProject) {
+            Path extra = pool.pollLast();
+            if (extra != null) {
+                discard(extra);
+            }
+        }
+    }
+
+    private CopyMode materialize(Path source, Path target) throws IOException {
+        Files.createDirectories(target);
+        CopyMode mode = copyMode;
+        if (mode == CopyMode.AUTO) {
+            mode = isReflinkSupported() ? CopyMode.REFLINK : CopyMode.HARDLINK;
+        }
+        if (mode == CopyMode.REFLINK && !reflinkTree(source, target)) {
+            mode = CopyMode.HARDLINK;
+        }
+        if (mode != CopyMode.REFLINK) {
+            copyTree(source, target, mode == CopyMode.HARDLINK);
+        }
+        // objects fetched into the pristine checkout later are visible here once the workspace is reused
+        Path alternates = target.resolve(".git/objects/info/alternates");
+        List<String> lines = Files.exists(alternates) ? Files.readAllLines(alternates) : List.of();
+        String objects = source.resolve(".git/objects").toAbsolutePath().toString();
+        if (!lines.contains(objects)) {
+            Files.createDirectories(alternates.getParent());
+            Files.writeString(alternates, objects + "\n", StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return mode;
+    }
+
+    private boolean reflinkTree(Path source, Path target) {
+        try {
+            Process process = new ProcessBuilder("cp", "-a", "--reflink=always", source.toAbsolutePath() + "/.", target.toAbsolutePath().toString())
+                    .redirectErrorStream(true).start();
+            String output = new String(process.getInputStream().readAllBytes());
+            if (process.waitFor() == 0) {
+                return true;
+            }
+            log.warn("Reflink copy into {} failed, falling back to hardlinks: {}", target, output.trim());
+        } catch (IOException e) {
+            log.warn("Reflink copy into {} failed, falling back to hardlinks: {}", target, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        deleteContents(target);
+        return false;
+    }
+
+    /**
+     * Copies a checkout file by file. With hardlinks only loose objects and packs are linked: git
+     * never writes to them once created. The working tree and git's bookkeeping files are always
+     * copied, a build step editing a file in place must not change it for the pristine copy.
+     */
+    private void copyTree(Path source, Path target, boolean hardlink) throws IOException {
+        Path gitDir = source.resolve(".git");
+        Path gitObjects = gitDir.resolve("objects");
+        // alternates and pack lists, written to per workspace
+        Path gitObjectsInfo = gitObjects.resolve("info");
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path copy = target.resolve(source.relativize(file));
+                boolean link = hardlink && attrs.isRegularFile() && file.startsWith(gitObjects) && !file.startsWith(gitObjectsInfo);
+                if (link) {
+                    try {
+                        Files.createLink(copy, file);
+                        return FileVisitResult.CONTINUE;
+                    } catch (IOException | UnsupportedOperationException e) {
+                        // e.g. a filesystem without hardlinks, copied instead
+                    }
+                }
+                Files.copy(file, copy, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void copyShallow(Path pristine, Path slot) throws IOException {
+        Path shallow = pristine.resolve(".git/shallow");
+        if (Files.exists(shallow)) {
+            Files.copy(shallow, slot.resolve(".git/shallow"), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(slot.resolve(".git/shallow"));
+        }
+    }
+
+    private boolean isReflinkSupported() {
+        if (reflinkSupported == null) {
+            Path probe = root.resolve(".reflink-probe");
+            Path copy = root.resolve(".reflink-probe-copy");
+            try {
+                Files.writeString(probe, "probe");
+                Process process = new ProcessBuilder("cp", "--reflink=always", probe.toString(), copy.toString()).redirectErrorStream(true).start();
+                process.getInputStream().readAllBytes();
+                reflinkSupported = process.waitFor() == 0;
+            } catch (Exception e) {
+                // no cp, e.g. on Windows
+                reflinkSupported = false;
+            } finally {
+                try {
+                    Files.deleteIfExists(probe);
+                    Files.deleteIfExists(copy);
+                } catch (IOException ignored) {
+                }
+            }
+            log.info("Workspaces are copied with {}", reflinkSupported ? "reflinks" : "hardlinked git objects");
+        }
+        return reflinkSupported;
+    }
+
+    /**
+     * Removes everything on disk for a deleted project: its pristine checkout, its workspaces and
+     * a checkout left from before the workspace layout.
+     */
+    public void removeProject(Long projectId, String projectName) {
+        Path projectRoot = root.resolve(String.valueOf(projectId));
+        synchronized (projectLocks.computeIfAbsent(projectId, k -> new Object())) {
+            idle.remove(projectId);
+            entries.keySet().removeIf(path -> path.startsWith(projectRoot));
+            deleteTree(projectRoot);
+        }
+        projectLocks.remove(projectId);
+        if (projectName != null && !projectName.isBlank() && !projectName.startsWith(".")) {
+            Path legacy = root.getParent().resolve(projectName);
+            if (legacy.getParent().equals(root.getParent()) && Files.isDirectory(legacy.resolve(".git"))) {
+                entries.remove(legacy);
+                deleteTree(legacy);
+            }
+        }
+    }
+
+    /**
+     * Disk used by one project's workspaces as last measured.
+     */
+    public WorkspaceUsage usage(Long projectId) {
+        WorkspaceUsage usage = WorkspaceUsage.builder().projectId(projectId).build();
+        Path projectRoot = root.resolve(String.valueOf(projectId));
+        long lastUsed = 0;
+        for (WorkspaceEntry entry : entries.values()) {
+            if (!projectId.equals(entry.projectId)) {
+                continue;
+            }
+            usage.setTotalBytes(usage.getTotalBytes() + entry.bytes);
+            lastUsed = Math.max(lastUsed, entry.lastUsedMillis);
+            if (entry.kind == Kind.PRISTINE) {
+                usage.setPristineBytes(entry.bytes);
+            } else if (isIdle(entry)) {
+                usage.setIdleWorkspaces(usage.getIdleWorkspaces() + 1);
+                usage.setIdleBytes(usage.getIdleBytes() + entry.bytes);
+            }
+        }
+        usage.setActiveWorkspaces((int) leased.stream().filter(path -> path.startsWith(projectRoot)).count());
+        if (lastUsed > 0) {
+            usage.setLastUsedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(lastUsed), ZoneId.systemDefault()));
+        }
+        return usage;
+    }
+
+    Collection<WorkspaceEntry> entries() {
+        return entries.values();
+    }
+
+    boolean isIdle(WorkspaceEntry entry) {
+        Deque<Path> pool = entry.projectId != null ? idle.get(entry.projectId) : null;
+        return entry.kind == Kind.BUILD && pool != null && pool.contains(entry.path);
+    }
+
+    /**
+     * Deletes a workspace the collector picked and returns the bytes it held, or 0 when it is in
+     * use. A pristine checkout goes together with the project's idle workspaces, which borrow its
+     * objects; it is kept while a build of the project runs.
+     */
+    long evict(WorkspaceEntry entry) {
+        if (entries.get(entry.path) != entry) {
+            return 0;
+        }
+        switch (entry.kind) {
+            case BUILD -> {
+                Deque<Path> pool = idle.get(entry.projectId);
+                // leased, or handed out since the collector looked
+                if (pool == null || !pool.remove(entry.path)) {
+                    return 0;
+                }
+                return remove(entry.path);
+            }
+            case PRISTINE -> {
+                Path projectRoot = entry.path.getParent();
+                synchronized (projectLocks.computeIfAbsent(entry.projectId, k -> new Object())) {
+                    if (leased.stream().anyMatch(path -> path.startsWith(projectRoot))) {
+                        return 0;
+                    }
+                    long freed = 0;
+                    Deque<Path> pool = idle.remove(entry.projectId);
+                    if (pool != null) {
+                        for (Path slot : pool) {
+                            freed += remove(slot);
+                        }
+                    }
+                    return freed + remove(entry.path);
+                }
+            }
+            default -> {
+                return remove(entry.path);
+            }
+        }
+    }
+
+    private long remove(Path path) {
+        WorkspaceEntry entry = entries.remove(path);
+        deleteTree(path);
+        return entry != null ? entry.bytes : 0;
+    }
+
+    private void track(Long projectId, Path path, Kind kind, long lastUsedMillis) {
+        WorkspaceEntry entry = entries.computeIfAbsent(path, p -> new WorkspaceEntry(projectId, p, kind));
+        entry.lastUsedMillis = lastUsedMillis;
+        // measured off the build thread, only this one directory is walked
+        measureExecutor.submit(() -> entry.bytes = sizeOf(path, kind == Kind.BUILD));
+    }
+
+    /**
+     * Bytes held by a directory. For build workspaces, files still hardlinked to the pristine copy
+     * are left out since deleting the workspace would not free them; reflinked files cannot be
+     * told apart and are counted in full.
+     */
+    private long sizeOf(Path directory, boolean ownedOnly) {
+        long[] bytes = {0};
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !(ownedOnly && isShared(file))) {
+                        bytes[0] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Could not measure {}: {}", directory, e.getMessage());
+        }
+        return bytes[0];
+    }
+
+    private boolean isShared(Path file) {
+        if (!linkCountReadable) {
+            return false;
+        }
+        try {
+            return ((Number) Files.getAttribute(file, "unix:nlink", LinkOption.NOFOLLOW_LINKS)).intValue() > 1;
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+            // no unix attribute view, e.g. on Windows
+            linkCountReadable = false;
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static Long parseProjectId(Path directory) {
+        try {
+            return Long.valueOf(directory.getFileName().toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void discard(Path slot) {
+        entries.remove(slot);
+        cleanupExecutor.submit(() -> deleteTree(slot));
+    }
+
+    static void deleteTree(Path directory) {
+        if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            log.warn("Could not remove workspace {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static void deleteContents(Path directory) {
+        deleteTree(directory);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            log.warn("Could not recreate {}: {}", directory, e.getMessage());
+        }
+    }
+
+    public enum CopyMode {
+        AUTO,
+        REFLINK,
+        HARDLINK,
+        COPY
+    }
+
+    enum Kind {
+        PRISTINE,
+        BUILD,
+        // a checkout directly in REPO_BASE_DIR from before workspaces were leased
+        LEGACY
+    }
+
+    static final class WorkspaceEntry {
+        final Long projectId;
+        final Path path;
+        final Kind kind;
+        volatile long bytes;
+        volatile long lastUsedMillis;
+
+        WorkspaceEntry(Long projectId, Path path, Kind kind) {
+            this.projectId = projectId;
+            this.path = path;
+            this.kind = kind;
+        }
+    }
+
+    public record WorkspaceLease(Long projectId, File directory, String commitSha) {
+    }
+}
@@ -1,66 +1,440 @@
 package com.mini_jenkin.utility;
 
 import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.entity.ProjectConfig;
 import com.mini_jenkin.entity.ProjectLogs;
 import com.mini_jenkin.exception.GeneralException;
+import com.mini_jenkin.service.metrics.BuildMetrics;
+import com.mini_jenkin.service.metrics.jfr.CloneCompletedEvent;
+import com.mini_jenkin.service.projectbuild.BuildContext;
+import com.mini_jenkin.service.trace.BuildTrace;
 import com.mini_jenkin.service.serviceInterface.ProjectLogServiceInterface;
+import com.mini_jenkin.service.workspace.RepositoryMirrorCache;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.CloneCommand;
+import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.EmptyProgressMonitor;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RefSpec;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Brings a build's workspace to the commit it has to build. Clones are shallow and single-branch
+ * by default; a trigger's commit SHA is checked out exactly, fetching it on its own when the
+ * shallow history does not reach it. Blob-less partial clones go through the git executable
+ * because JGit has no client side support for object filters.
+ */
 @Slf4j
 @Component
 public class CloneStage {
 
+    private static final String REMOTE = GitRefs.REMOTE;
+
     private final ProjectLogServiceInterface projectLogService;
+    private final BuildMetrics buildMetrics;
+    private final RepositoryMirrorCache mirrorCache;
+
+    @Value("${build.git.clone-depth:1}")
+    private int defaultDepth;
+
+    @Value("${build.git.single-branch:true}")
+    private boolean defaultSingleBranch;
+
+    @Value("${build.git.partial-clone:false}")
+    private boolean defaultPartialClone;
+
+    @Value("${build.git.executable:git}")
+    private String gitExecutable;
+
+    private volatile Boolean gitAvailable;
 
     @Autowired
-    public CloneStage(ProjectLogServiceInterface projectLogService) {
+    public CloneStage(ProjectLogServiceInterface projectLogService, BuildMetrics buildMetrics, RepositoryMirrorCache mirrorCache) {
         this.projectLogService = projectLogService;
+        this.buildMetrics = buildMetrics;
+        this.mirrorCache = mirrorCache;
     }
 
-    public String cloneOrPullGithubRepo(Project project, File workingDir) {
-        File workingDirectory = new File(workingDir, project.getProjectName());
+    /**
+     * Clones or updates the workspace and checks out the given commit, or the head of the branch
+     * when there is none. A blank branch means the remote's default branch.
+     */
+    public String cloneOrPullGithubRepo(Project project, String branch, String commitSha, File workingDirectory, BuildContext context) {
+        ProgressMonitor cancelMonitor = new EmptyProgressMonitor() {
+            @Override
+            public boolean isCancelled() {
+                return context.isCancelled();
+            }
+        };
+        CheckoutSpec spec = specOf(project, branch, commitSha);
+        boolean existing = workingDirectory.exists() && new File(workingDirectory, ".git").exists();
+        String operation = existing ? "fetch" : "clone";
+        // blob-less workspaces need the git executable for every later checkout as well
+        boolean cli = existing ? isPartial(workingDirectory) : spec.partial() && isGitAvailable();
+        boolean mirrored = !cli && mirrorCache.isEnabled();
+
+        Timer.Sample sample = buildMetrics.start();
+        CloneCompletedEvent event = new CloneCompletedEvent();
+        event.begin();
+        BuildTrace.Span span = context.getTrace().start(operation, "git")
+                .attr("depth", spec.depth())
+                .attr("singleBranch", spec.singleBranch())
+                .attr("partial", cli)
+                .attr("mirror", mirrored);
+        boolean success = false;
         try {
-            String gitUrl = project.getProjectConfig().getGithubUrl();
-            if (workingDirectory.exists() && new File(workingDirectory, ".git").exists()) {
-                // repo already exists so update the existing repository
-                try {
-                    Git git = Git.open(workingDirectory);
-                    git.pull().call();
-                    log.info("Repository updated successfully in {}", workingDirectory.getAbsolutePath());
-                    ProjectLogs projectLogs = ProjectLogs.builder().projectId(project.getProjectId()).log("\"Repository updated successfully in " + workingDirectory.getAbsolutePath()).logTime(LocalDateTime.now()).build();
-                    projectLogService.addProjectLog(projectLogs, project.getProjectId());
-                    git.close();
-                } catch (Exception e) {
-                    log.error("Error while checking existing git repository: {}", e.getMessage(), e);
-                    throw new RuntimeException("Error while checking existing git repository: " + e.getMessage(), e);
+            if (mirrored) {
+                checkoutFromMirror(spec, workingDirectory, existing, cancelMonitor);
+            } else if (existing) {
+                if (cli) {
+                    fetchWithCli(spec, workingDirectory, context);
+                } else {
+                    fetchWithJGit(spec, workingDirectory, cancelMonitor);
                 }
+            } else if (cli) {
+                cloneWithCli(spec, workingDirectory, context);
             } else {
-                //Clone the repository
-                try {
-                    Git.cloneRepository()
-                            .setURI(gitUrl)
-                            .setDirectory(workingDirectory)
-                            .call();
-                    log.info("Repository cloned successfully in {}", workingDirectory.getAbsolutePath());
-                    ProjectLogs projectLogs = ProjectLogs.builder().projectId(project.getProjectId()).log("\"Repository cloned successfully in " + workingDirectory.getAbsolutePath()).logTime(LocalDateTime.now()).build();
-                    projectLogService.addProjectLog(projectLogs, project.getProjectId());
-                } catch (Exception e) {
-                    log.error("Failed to clone repository", e);
-                    ProjectLogs projectLogs = ProjectLogs.builder().projectId(project.getProjectId()).log("Failed to clone repository " + e.getMessage()).logTime(LocalDateTime.now()).build();
-                    projectLogService.addProjectLog(projectLogs, project.getProjectId());
-                    throw new GeneralException(e.getMessage());
+                if (spec.partial()) {
+                    log.warn("{} is not available, cloning {} without a blob filter", gitExecutable, spec.url());
                 }
+                cloneWithJGit(spec, workingDirectory, cancelMonitor);
             }
+            success = true;
+            String message = (existing ? "Repository updated successfully in " : "Repository cloned successfully in ") + workingDirectory.getAbsolutePath()
+                    + (commitSha != null ? " at " + commitSha : "");
+            log.info(message);
+            ProjectLogs projectLogs = ProjectLogs.builder().projectId(project.getProjectId()).log(message).logTime(LocalDateTime.now()).build();
+            projectLogService.addProjectLog(projectLogs, project.getProjectId());
             return workingDirectory.getAbsolutePath();
         } catch (Exception e) {
-            log.error("Error during clone stage execution: {}", e.getMessage(), e);
+            log.error("Failed to {} repository: {}", operation, e.getMessage(), e);
+            ProjectLogs projectLogs = ProjectLogs.builder().projectId(project.getProjectId()).log("Failed to " + operation + " repository " + e.getMessage()).logTime(LocalDateTime.now()).build();
+            projectLogService.addProjectLog(projectLogs, project.getProjectId());
+            throw e instanceof GeneralException general ? general : new GeneralException(e.getMessage());
+        } finally {
+            buildMetrics.recordCheckout(sample, operation, success);
+            commit(event, project, context, operation, success);
+            span.attr("success", success).close();
+        }
+    }
+
+    /**
+     * Fetches a commit into the repository's mirror ahead of its build, without touching any
+     * workspace. Returns false when the project's checkouts do not go through the mirror.
+     */
+    public boolean prefetch(Project project, String branch, String commitSha) throws Exception {
+        CheckoutSpec spec = specOf(project, branch, commitSha);
+        if (!mirrorCache.isEnabled() || spec.url() == null || (spec.partial() && isGitAvailable())) {
+            return false;
+        }
+        mirrorCache.sync(spec.url(), spec.branch(), spec.commitSha(), spec.depth(), spec.singleBranch(), NullProgressMonitor.INSTANCE);
+        return true;
+    }
+
+    private CheckoutSpec specOf(Project project, String branch, String commitSha) {
+        ProjectConfig config = project.getProjectConfig();
+        if (branch == null || branch.isBlank()) {
+            branch = config.getBranch();
+        }
+        return new CheckoutSpec(
+                config.getGithubUrl(),
+                branch == null || branch.isBlank() ? null : branch.trim(),
+                commitSha == null || commitSha.isBlank() ? null : commitSha.trim(),
+                Math.max(0, config.getCloneDepth() != null ? config.getCloneDepth() : defaultDepth),
+                config.getSingleBranch() != null ? config.getSingleBranch() : defaultSingleBranch,
+                config.getPartialClone() != null ? config.getPartialClone() : defaultPartialClone);
+    }
+
+    private void cloneWithJGit(CheckoutSpec spec, File workingDirectory, ProgressMonitor monitor) throws Exception {
+        CloneCommand clone = Git.cloneRepository()
+                .setURI(spec.url())
+                .setDirectory(workingDirectory)
+                .setProgressMonitor(monitor)
+                .setNoCheckout(true);
+        if (spec.branch() != null) {
+            clone.setBranch(spec.branch());
+            if (spec.singleBranch()) {
+                clone.setCloneAllBranches(false).setBranchesToClone(List.of(Constants.R_HEADS + spec.branch()));
+            }
+        }
+        if (spec.depth() > 0) {
+            clone.setDepth(spec.depth());
+        }
+        try (Git git = clone.call()) {
+            checkout(git, spec, monitor);
+        }
+    }
+
+    /**
+     * Fetches into the repository's shared mirror and checks the commit out in a workspace that
+     * borrows the mirror's objects. A workspace cloned before the mirror existed keeps its own
+     * objects and takes new ones from the mirror.
+     */
+    private void checkoutFromMirror(CheckoutSpec spec, File workingDirectory, boolean existing, ProgressMonitor monitor) throws Exception {
+        RepositoryMirrorCache.MirrorCommit mirror = mirrorCache.sync(spec.url(), spec.branch(), spec.commitSha(), spec.depth(), spec.singleBranch(), monitor);
+        try (Git git = existing
+                ? Git.open(workingDirectory)
+                : Git.init().setDirectory(workingDirectory).setInitialBranch(mirror.branch()).call()) {
+            StoredConfig config = git.getRepository().getConfig();
+            if (config.getString("remote", REMOTE, "url") == null) {
+                // lets builds that run git themselves reach the real remote
+                config.setString("remote", REMOTE, "url", spec.url());
+                config.setString("remote", REMOTE, "fetch", "+" + Constants.R_HEADS + "*:" + Constants.R_REMOTES + REMOTE + "/*");
+                config.save();
+            }
+            mirrorCache.borrow(git.getRepository(), mirror);
+        }
+        try (Git git = Git.open(workingDirectory)) {
+            resetTo(git, mirror.branch(), mirror.commit());
+        }
+    }
+
+    private void fetchWithJGit(CheckoutSpec spec, File workingDirectory, ProgressMonitor monitor) throws Exception {
+        try (Git git = Git.open(workingDirectory)) {
+            String branch = branchOf(git.getRepository(), spec);
+            FetchCommand fetch = git.fetch().setRemote(REMOTE).setProgressMonitor(monitor);
+            if (spec.singleBranch()) {
+                fetch.setRefSpecs(trackingSpec(branch));
+            }
+            if (spec.depth() > 0) {
+                fetch.setDepth(spec.depth());
+            }
+            fetch.call();
+            checkout(git, spec, monitor);
+        }
+    }
+
+    /**
+     * Points the local branch at the target commit and resets the working tree to it, the
+     * equivalent of {@code git checkout -f -B <branch> <target>}. Untracked files are kept so
+     * incremental builds still find their output.
+     */
+    private void checkout(Git git, CheckoutSpec spec, ProgressMonitor monitor) throws Exception {
+        Repository repository = git.getRepository();
+        String branch = branchOf(repository, spec);
+        ObjectId target;
+        if (spec.commitSha() != null) {
+            target = GitRefs.fetchCommit(git, spec.commitSha(), spec.depth(), trackingSpec("*"), monitor);
+            if (target == null) {
+                throw new GeneralException("Commit " + spec.commitSha() + " not found in " + spec.url());
+            }
+        } else {
+            target = repository.resolve(Constants.R_REMOTES + REMOTE + "/" + branch);
+            if (target == null) {
+                throw new GeneralException("Branch " + branch + " not found in " + spec.url());
+            }
+        }
+        resetTo(git, branch, target);
+    }
+
+    private static void resetTo(Git git, String branch, ObjectId target) throws Exception {
+        Repository repository = git.getRepository();
+        if (!branch.equals(repository.getBranch())) {
+            repository.updateRef(Constants.HEAD).link(Constants.R_HEADS + branch);
+        }
+        git.reset().setMode(ResetCommand.ResetType.HARD).setRef(target.name()).call();
+    }
+
+    private void cloneWithCli(CheckoutSpec spec, File workingDirectory, BuildContext context) {
+        List<String> clone = new ArrayList<>(List.of("clone", "--filter=blob:none", "--no-checkout"));
+        if (spec.depth() > 0) {
+            clone.add("--depth=" + spec.depth());
+        }
+        clone.add(spec.singleBranch() ? "--single-branch" : "--no-single-branch");
+        if (spec.branch() != null) {
+            clone.add("--branch=" + spec.branch());
+        }
+        clone.add(spec.url());
+        clone.add(workingDirectory.getAbsolutePath());
+        File parent = workingDirectory.getAbsoluteFile().getParentFile();
+        parent.mkdirs();
+        git(clone, parent, context);
+        checkoutWithCli(spec, workingDirectory, context);
+    }
+
+    private void fetchWithCli(CheckoutSpec spec, File workingDirectory, BuildContext context) {
+        List<String> fetch = new ArrayList<>(List.of("fetch", "--force"));
+        if (spec.depth() > 0) {
+            fetch.add("--depth=" + spec.depth());
+        }
+        fetch.add(REMOTE);
+        if (spec.singleBranch()) {
+            fetch.add(trackingSpec(branchOf(workingDirectory, spec, context)).toString());
+        }
+        git(fetch, workingDirectory, context);
+        checkoutWithCli(spec, workingDirectory, context);
+    }
+
+    private void checkoutWithCli(CheckoutSpec spec, File workingDirectory, BuildContext context) {
+        String branch = branchOf(workingDirectory, spec, context);
+        String target = REMOTE + "/" + branch;
+        if (spec.commitSha() != null) {
+            target = spec.commitSha();
+            if (gitExitCode(List.of("cat-file", "-e", target + "^{commit}"), workingDirectory, context) != 0) {
+                List<String> fetch = new ArrayList<>(List.of("fetch"));
+                if (spec.depth() > 0) {
+                    fetch.add("--depth=" + spec.depth());
+                }
+                fetch.add(REMOTE);
+                fetch.add(target);
+                git(fetch, workingDirectory, context);
+            }
+        }
+        // missing blobs are fetched from the remote here
+        git(List.of("checkout", "--force", "-B", branch, target), workingDirectory, context);
+    }
+
+    private String branchOf(Repository repository, CheckoutSpec spec) throws Exception {
+        if (spec.branch() != null) {
+            return spec.branch();
+        }
+        // a blank branch follows whatever the clone checked out from the remote's HEAD
+        return repository.getBranch();
+    }
+
+    private String branchOf(File workingDirectory, CheckoutSpec spec, BuildContext context) {
+        return spec.branch() != null ? spec.branch() : git(List.of("symbolic-ref", "--short", "HEAD"), workingDirectory, context).trim();
+    }
+
+    private static RefSpec trackingSpec(String branch) {
+        return new RefSpec("+" + Constants.R_HEADS + branch + ":" + Constants.R_REMOTES + REMOTE + "/" + branch);
+    }
+
+    private static boolean isPartial(File workingDirectory) {
+        try (Git git = Git.open(workingDirectory)) {
+            return git.getRepository().getConfig().getBoolean("remote", REMOTE, "promisor", false);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private boolean isGitAvailable() {
+        if (gitAvailable == null) {
+            try {
+                Process process = new ProcessBuilder(gitExecutable, "--version").redirectErrorStream(true).start();
+                process.getInputStream().readAllBytes();
+                gitAvailable = process.waitFor() == 0;
+            } catch (Exception e) {
+                gitAvailable = false;
+            }
+        }
+        return gitAvailable;
+    }
+
+    private String git(List<String> args, File directory, BuildContext context) {
+        GitResult result = runGit(args, directory, context);
+        if (context.isCancelled()) {
+            throw new GeneralException("Checkout cancelled");
+        }
+        if (result.exitCode() != 0) {
+            throw new GeneralException("git " + args.get(0) + " failed with exit code " + result.exitCode() + ": " + result.output().trim());
+        }
+        return result.output();
+    }
+
+    private int gitExitCode(List<String> args, File directory, BuildContext context) {
+        return runGit(args, directory, context).exitCode();
+    }
+
+    private GitResult runGit(List<String> args, File directory, BuildContext context) {
+        List<String> command = new ArrayList<>();
+        command.add(gitExecutable);
+        command.addAll(args);
+        ProcessBuilder builder = new ProcessBuilder(command).directory(directory).redirectErrorStream(true);
+        // a credential prompt would block the worker forever
+        builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        try {
+            Process process = builder.start();
+            // registered with the context so cancelling the build kills it
+            context.attach(process);
+            try (InputStream output = process.getInputStream()) {
+                String text = new String(output.readAllBytes(), StandardCharsets.UTF_8);
+                return new GitResult(process.waitFor(), text);
+            } finally {
+                context.detach();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeneralException("Interrupted while running git " + args.get(0));
+        } catch (IOException e) {
+            throw new GeneralException("Could not run " + gitExecutable + ": " + e.getMessage());
+        }
+    }
+
+    private static void commit(CloneCompletedEvent event, Project project, BuildContext context, String operation, boolean success) {
+        if (event.shouldCommit()) {
+            event.buildId = context.getBuildId();
+            event.projectId = project.getProjectId();
+            event.operation = operation;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    /**
+     * Moves an existing checkout to a commit its object database already has, keeping untracked
+     * files. Used for workspaces that borrow a freshly updated checkout's objects.
+     */
+    public void checkoutCommit(File workingDirectory, String branch, String commitSha) {
+        try (Git git = Git.open(workingDirectory)) {
+            ObjectId target = GitRefs.resolveCommit(git.getRepository(), commitSha);
+            if (target == null) {
+                throw new GeneralException("Commit " + commitSha + " not found in " + workingDirectory);
+            }
+            resetTo(git, branch, target);
+        } catch (GeneralException e) {
             throw e;
+        } catch (Exception e) {
+            throw new GeneralException("Could not check out " + commitSha + " in " + workingDirectory + ": " + e.getMessage());
         }
     }
+
+    /**
+     * The branch checked out in the working directory, or null when it cannot be read.
+     */
+    public String currentBranch(File workingDirectory) {
+        try (Git git = Git.open(workingDirectory)) {
+            return git.getRepository().getBranch();
+        } catch (Exception e) {
+            log.warn("Could not read the branch of {}: {}", workingDirectory, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The commit checked out in the working directory, or null when it cannot be read.
+     */
+    public String headCommit(File workingDirectory) {
+        try (Git git = Git.open(workingDirectory)) {
+            ObjectId head = git.getRepository().resolve("HEAD");
+            return head != null ? head.name() : null;
+        } catch (Exception e) {
+            log.warn("Could not resolve HEAD in {}: {}", workingDirectory, e.getMessage());
+            return null;
+        }
+    }
+
+    private record CheckoutSpec(String url, String branch, String commitSha, int depth, boolean singleBranch, boolean partial) {
+    }
+
+    private record GitResult(int exitCode, String output) {
+    }
 }
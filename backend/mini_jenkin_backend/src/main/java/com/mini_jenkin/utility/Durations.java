@@ -0,0 +1,25 @@
+package com.mini_jenkin.utility;
+
+/**
+ * Human readable build and stage durations, as shown in logs, history and mails.
+ */
+public final class Durations {
+
+    private Durations() {
+    }
+
+    public static String formatDuration(long milliseconds) {
+        long totalSeconds = milliseconds / 1000;
+        long hours = totalSeconds / 3600;
+        long minutes = (totalSeconds % 3600) / 60;
+        long seconds = totalSeconds % 60;
+
+        StringBuilder sb = new StringBuilder();
+
+        if (hours > 0) sb.append(hours).append("h ");
+        if (minutes > 0) sb.append(minutes).append("m ");
+        if (seconds > 0 || sb.length() == 0) sb.append(seconds).append("s");
+
+        return sb.toString().trim();
+    }
+}
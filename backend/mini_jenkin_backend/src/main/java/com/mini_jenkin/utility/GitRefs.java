@@ -0,0 +1,66 @@
+package com.mini_jenkin.utility;
+
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.api.FetchCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ProgressMonitor;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.RefSpec;
+
+import java.io.IOException;
+
+/**
+ * Commit lookups shared by workspace checkouts and the mirror cache.
+ */
+@Slf4j
+public final class GitRefs {
+
+    public static final String REMOTE = "origin";
+
+    private GitRefs() {
+    }
+
+    /**
+     * The commit with the given id, or null when the repository does not have it.
+     */
+    public static ObjectId resolveCommit(Repository repository, String commitSha) throws IOException {
+        try {
+            return repository.resolve(commitSha + "^{commit}");
+        } catch (MissingObjectException e) {
+            // a full id resolves without looking the object up, reading it is what fails
+            return null;
+        }
+    }
+
+    /**
+     * Resolves a commit, fetching it by id when the shallow history does not contain it and
+     * falling back to the full history of every branch, fetched with allBranches, for servers that
+     * refuse to serve a bare id. Returns null when the remote does not have it either.
+     */
+    public static ObjectId fetchCommit(Git git, String commitSha, int depth, RefSpec allBranches, ProgressMonitor monitor) throws Exception {
+        Repository repository = git.getRepository();
+        ObjectId commit = resolveCommit(repository, commitSha);
+        if (commit != null) {
+            return commit;
+        }
+        try {
+            FetchCommand fetch = git.fetch().setRemote(REMOTE).setProgressMonitor(monitor).setRefSpecs(new RefSpec(commitSha));
+            if (depth > 0) {
+                fetch.setDepth(depth);
+            }
+            fetch.call();
+        } catch (Exception e) {
+            log.info("Fetching {} by id failed ({}), fetching full history instead", commitSha, e.getMessage());
+            // explicit refspecs, a mirror has none configured for its remote
+            git.fetch().setRemote(REMOTE).setProgressMonitor(monitor).setRefSpecs(allBranches)
+                    .setUnshallow(isShallow(repository)).call();
+        }
+        return resolveCommit(repository, commitSha);
+    }
+
+    public static boolean isShallow(Repository repository) throws IOException {
+        return !repository.getObjectDatabase().getShallowCommits().isEmpty();
+    }
+}
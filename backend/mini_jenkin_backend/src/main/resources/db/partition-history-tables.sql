@@ -0,0 +1,91 @@
+-- Partitions project_logs and build_logs by month when they already hold rows. On startup the
+-- application only converts them while they are empty, a full copy would lock them for as long
+-- as it takes. Here the existing table becomes the partition of everything before the cutover,
+-- without copying or rescanning it under an exclusive lock.
+--
+--   psql -v cutover=2026-12-01 -f partition-history-tables.sql <database>
+--
+-- cutover is the first day of a month, far enough ahead that phase 2 runs before it: from
+-- phase 1 on, rows dated at or after it are rejected until phase 2 is done. The application
+-- can keep running throughout. Once phase 2 has committed, the application creates the monthly
+-- partitions from the cutover on at its next start or maintenance run, and drops
+-- <table>_legacy once build.history.partitioning.retention-months has passed the cutover.
+
+\set ON_ERROR_STOP on
+
+-- Phase 1, online: only VALIDATE and CREATE INDEX CONCURRENTLY scan the tables, and neither
+-- blocks writes.
+
+DO $$
+DECLARE
+    updated int;
+BEGIN
+    LOOP
+        UPDATE project_logs SET log_time = now()
+        WHERE id IN (SELECT id FROM project_logs WHERE log_time IS NULL LIMIT 5000);
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        EXIT WHEN updated = 0;
+        COMMIT;
+    END LOOP;
+    LOOP
+        UPDATE build_logs SET "timestamp" = now()
+        WHERE id IN (SELECT id FROM build_logs WHERE "timestamp" IS NULL LIMIT 5000);
+        GET DIAGNOSTICS updated = ROW_COUNT;
+        EXIT WHEN updated = 0;
+        COMMIT;
+    END LOOP;
+END $$;
+
+-- becomes the partition's primary key, the partition key has to be part of it
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS project_logs_legacy_id_time ON project_logs (id, log_time);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS build_logs_legacy_id_time ON build_logs (id, "timestamp");
+
+-- validated checks let SET NOT NULL and ATTACH PARTITION skip their own scans in phase 2
+ALTER TABLE project_logs ADD CONSTRAINT project_logs_time_not_null CHECK (log_time IS NOT NULL) NOT VALID;
+ALTER TABLE project_logs VALIDATE CONSTRAINT project_logs_time_not_null;
+ALTER TABLE project_logs ADD CONSTRAINT project_logs_time_before_cutover CHECK (log_time < :'cutover') NOT VALID;
+ALTER TABLE project_logs VALIDATE CONSTRAINT project_logs_time_before_cutover;
+
+ALTER TABLE build_logs ADD CONSTRAINT build_logs_time_not_null CHECK ("timestamp" IS NOT NULL) NOT VALID;
+ALTER TABLE build_logs VALIDATE CONSTRAINT build_logs_time_not_null;
+ALTER TABLE build_logs ADD CONSTRAINT build_logs_time_before_cutover CHECK ("timestamp" < :'cutover') NOT VALID;
+ALTER TABLE build_logs VALIDATE CONSTRAINT build_logs_time_before_cutover;
+
+-- Phase 2, one short transaction per table: catalog changes only, nothing is copied or scanned.
+
+BEGIN;
+SET LOCAL lock_timeout = '10s';
+LOCK TABLE project_logs IN ACCESS EXCLUSIVE MODE;
+ALTER TABLE project_logs ALTER COLUMN log_time SET NOT NULL;
+ALTER TABLE project_logs RENAME TO project_logs_legacy;
+ALTER TABLE project_logs_legacy DROP CONSTRAINT project_logs_pkey;
+ALTER TABLE project_logs_legacy ADD CONSTRAINT project_logs_legacy_pkey PRIMARY KEY USING INDEX project_logs_legacy_id_time;
+-- index names are schema-wide, the parent's index takes the old name and adopts this one
+ALTER INDEX idx_project_logs_project_time RENAME TO idx_project_logs_legacy_project_time;
+CREATE TABLE project_logs (LIKE project_logs_legacy INCLUDING DEFAULTS) PARTITION BY RANGE (log_time);
+ALTER TABLE project_logs ATTACH PARTITION project_logs_legacy FOR VALUES FROM (MINVALUE) TO (:'cutover');
+ALTER TABLE project_logs ADD PRIMARY KEY (id, log_time);
+CREATE INDEX idx_project_logs_project_time ON project_logs (project_id, log_time);
+CREATE TABLE project_logs_default PARTITION OF project_logs DEFAULT;
+COMMIT;
+
+BEGIN;
+SET LOCAL lock_timeout = '10s';
+LOCK TABLE build_logs IN ACCESS EXCLUSIVE MODE;
+ALTER TABLE build_logs ALTER COLUMN "timestamp" SET NOT NULL;
+ALTER TABLE build_logs RENAME TO build_logs_legacy;
+ALTER TABLE build_logs_legacy DROP CONSTRAINT build_logs_pkey;
+ALTER TABLE build_logs_legacy ADD CONSTRAINT build_logs_legacy_pkey PRIMARY KEY USING INDEX build_logs_legacy_id_time;
+ALTER INDEX idx_build_logs_project_time RENAME TO idx_build_logs_legacy_project_time;
+-- identity columns are not carried over to partitioned tables, a sequence default replaces it
+CREATE SEQUENCE build_logs_partitioned_id_seq;
+SELECT setval('build_logs_partitioned_id_seq', (SELECT COALESCE(max(id), 0) + 1 FROM build_logs_legacy), false);
+ALTER TABLE build_logs_legacy ALTER COLUMN id DROP IDENTITY;
+CREATE TABLE build_logs (LIKE build_logs_legacy INCLUDING DEFAULTS) PARTITION BY RANGE ("timestamp");
+ALTER TABLE build_logs ALTER COLUMN id SET DEFAULT nextval('build_logs_partitioned_id_seq');
+ALTER SEQUENCE build_logs_partitioned_id_seq OWNED BY build_logs.id;
+ALTER TABLE build_logs ATTACH PARTITION build_logs_legacy FOR VALUES FROM (MINVALUE) TO (:'cutover');
+ALTER TABLE build_logs ADD PRIMARY KEY (id, "timestamp");
+CREATE INDEX idx_build_logs_project_time ON build_logs (project_id, "timestamp");
+CREATE TABLE build_logs_default PARTITION OF build_logs DEFAULT;
+COMMIT;
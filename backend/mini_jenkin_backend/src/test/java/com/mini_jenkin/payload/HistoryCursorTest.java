@@ -0,0 +1,45 @@
+package com.mini_jenkin.payload;
+
+import com.mini_jenkin.exception.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistoryCursorTest {
+
+    @Test
+    void encodedCursorDecodesToItself() {
+        HistoryCursor cursor = new HistoryCursor(LocalDateTime.of(2024, 3, 5, 14, 7, 9, 123_000_000), 42);
+
+        assertEquals(cursor, HistoryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodedCursorIsUrlSafe() {
+        String encoded = HistoryCursor.START.encode();
+
+        assertFalse(encoded.contains("+") || encoded.contains("/") || encoded.contains("="));
+    }
+
+    @Test
+    void missingCursorStartsFromTheTop() {
+        assertEquals(HistoryCursor.START, HistoryCursor.decode(null));
+        assertEquals(HistoryCursor.START, HistoryCursor.decode(" "));
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        String notATime = Base64.getUrlEncoder().encodeToString("yesterday|1".getBytes(StandardCharsets.UTF_8));
+        String noId = Base64.getUrlEncoder().encodeToString("2024-03-05T14:07:09".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(InvalidCursorException.class, () -> HistoryCursor.decode("not base64!"));
+        assertThrows(InvalidCursorException.class, () -> HistoryCursor.decode(notATime));
+        assertThrows(InvalidCursorException.class, () -> HistoryCursor.decode(noId));
+    }
+}
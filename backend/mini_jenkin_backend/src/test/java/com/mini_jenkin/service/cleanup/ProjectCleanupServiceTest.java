@@ -0,0 +1,167 @@
+package com.mini_jenkin.service.cleanup;
+
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.payload.DeletionJob;
+import com.mini_jenkin.payload.DeletionJobStatus;
+import com.mini_jenkin.repository.BuildLogsRepository;
+import com.mini_jenkin.repository.BuildRepository;
+import com.mini_jenkin.repository.ProjectConfigRepository;
+import com.mini_jenkin.repository.ProjectLogRepository;
+import com.mini_jenkin.repository.ProjectRepository;
+import com.mini_jenkin.repository.StageExecutionRepository;
+import com.mini_jenkin.service.events.ProjectEventBus;
+import com.mini_jenkin.service.logstore.BuildLogStore;
+import com.mini_jenkin.service.logstore.LogCompactor;
+import com.mini_jenkin.service.logstore.ProjectLogWriter;
+import com.mini_jenkin.service.serviceInterface.ProjectExecutionServiceInterface;
+import com.mini_jenkin.service.stats.BuildStatsRollup;
+import com.mini_jenkin.service.workspace.RepositoryMirrorCache;
+import com.mini_jenkin.service.workspace.WorkspaceManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.quartz.Scheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProjectCleanupServiceTest {
+
+    private static final Long PROJECT_ID = 7L;
+
+    @Mock
+    private ProjectRepository projectRepository;
+    @Mock
+    private BuildRepository buildRepository;
+    @Mock
+    private BuildLogsRepository buildLogsRepository;
+    @Mock
+    private ProjectLogRepository projectLogRepository;
+    @Mock
+    private ProjectConfigRepository projectConfigRepository;
+    @Mock
+    private StageExecutionRepository stageExecutionRepository;
+    @Mock
+    private BuildStatsRollup buildStatsRollup;
+    @Mock
+    private ProjectLogWriter projectLogWriter;
+    @Mock
+    private BuildLogStore buildLogStore;
+    @Mock
+    private LogCompactor logCompactor;
+    @Mock
+    private ProjectExecutionServiceInterface projectExecutionService;
+    @Mock
+    private ProjectEventBus projectEventBus;
+    @Mock
+    private WorkspaceManager workspaceManager;
+    @Mock
+    private RepositoryMirrorCache repositoryMirrorCache;
+    @Mock
+    private Scheduler scheduler;
+    @Mock
+    private ExecutorService cleanupExecutor;
+
+    @InjectMocks
+    private ProjectCleanupService cleanupService;
+
+    private Project project;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cleanupService, "chunkSize", 2);
+        ReflectionTestUtils.setField(cleanupService, "buildStopTimeoutSeconds", 1L);
+        ReflectionTestUtils.setField(cleanupService, "jobTtlMinutes", 60L);
+        project = new Project();
+        project.setProjectId(PROJECT_ID);
+        project.setProjectName("demo");
+        // jobs run on the calling thread
+        when(cleanupExecutor.submit(any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(0)).run();
+            return null;
+        });
+    }
+
+    @Test
+    void projectIsDeletedChunkByChunkOnceItsBuildsHaveStopped() throws Exception {
+        whenProjectExists();
+        when(projectExecutionService.awaitProjectBuilds(anyLong(), anyLong())).thenReturn(true);
+        when(projectLogRepository.deleteChunkByProjectId(PROJECT_ID, 2)).thenReturn(2, 2, 1, 0);
+        when(buildLogsRepository.deleteChunkByProjectId(PROJECT_ID, 2)).thenReturn(2, 0);
+        when(stageExecutionRepository.deleteChunkByProjectId(PROJECT_ID, 2)).thenReturn(0);
+        when(buildRepository.findIdChunkByProjectId(PROJECT_ID, 2)).thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+        when(projectConfigRepository.findGithubUrlByProjectId(PROJECT_ID)).thenReturn("https://github.com/owner/repo");
+
+        DeletionJob job = cleanupService.submitProjectDeletion(PROJECT_ID);
+
+        assertEquals(DeletionJobStatus.COMPLETED, job.getStatus());
+        // 5 project log rows, 2 build log rows, 3 builds and the project itself
+        assertEquals(11, job.getRowsDeleted());
+        assertEquals(3, job.getBuildLogsDeleted());
+        verify(projectLogRepository, times(4)).deleteChunkByProjectId(PROJECT_ID, 2);
+        verify(buildRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(buildRepository).deleteAllByIdInBatch(List.of(3L));
+        verify(buildLogStore).delete(3L);
+        InOrder order = inOrder(projectExecutionService, projectLogRepository, workspaceManager, projectRepository, repositoryMirrorCache);
+        order.verify(projectExecutionService).closeProject(PROJECT_ID);
+        order.verify(projectExecutionService).awaitProjectBuilds(PROJECT_ID, 1000L);
+        order.verify(projectLogRepository, times(4)).deleteChunkByProjectId(PROJECT_ID, 2);
+        order.verify(workspaceManager).removeProject(PROJECT_ID, "demo");
+        order.verify(projectRepository).delete(project);
+        order.verify(repositoryMirrorCache).removeUnreferenced("https://github.com/owner/repo");
+    }
+
+    @Test
+    void projectIsKeptWhenItsBuildsDoNotStop() throws Exception {
+        whenProjectExists();
+        when(projectExecutionService.awaitProjectBuilds(anyLong(), anyLong())).thenReturn(false);
+
+        DeletionJob job = cleanupService.submitProjectDeletion(PROJECT_ID);
+
+        assertEquals(DeletionJobStatus.FAILED, job.getStatus());
+        assertEquals(0, job.getRowsDeleted());
+        verify(projectExecutionService).reopenProject(PROJECT_ID);
+        verify(projectLogRepository, never()).deleteChunkByProjectId(anyLong(), any(Integer.class));
+        verify(projectRepository, never()).delete(any());
+        verify(repositoryMirrorCache, never()).removeUnreferenced(anyString());
+    }
+
+    @Test
+    void logPurgeDeletesRowsInChunks() {
+        when(projectRepository.existsById(PROJECT_ID)).thenReturn(true);
+        when(logCompactor.purgeBuildLogs(PROJECT_ID)).thenReturn(4);
+        when(projectLogRepository.deleteChunkByProjectId(PROJECT_ID, 2)).thenReturn(2, 2, 2, 0);
+
+        DeletionJob job = cleanupService.submitLogPurge(PROJECT_ID);
+
+        assertEquals(DeletionJobStatus.COMPLETED, job.getStatus());
+        assertEquals(6, job.getRowsDeleted());
+        assertEquals(4, job.getBuildLogsDeleted());
+        InOrder order = inOrder(projectLogWriter, projectLogRepository);
+        order.verify(projectLogWriter).flush();
+        order.verify(projectLogRepository, times(4)).deleteChunkByProjectId(PROJECT_ID, 2);
+    }
+
+    private void whenProjectExists() throws Exception {
+        when(projectRepository.findById(PROJECT_ID)).thenReturn(Optional.of(project));
+        when(scheduler.getJobKeys(any())).thenReturn(Set.of());
+    }
+}
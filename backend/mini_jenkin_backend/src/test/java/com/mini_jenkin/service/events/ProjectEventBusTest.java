@@ -0,0 +1,59 @@
+package com.mini_jenkin.service.events;
+
+import com.mini_jenkin.exception.SubscriptionLimitException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProjectEventBusTest {
+
+    private ProjectEventBus bus;
+
+    @BeforeEach
+    void setUp() {
+        bus = new ProjectEventBus();
+        ReflectionTestUtils.setField(bus, "subscriberBuffer", 16);
+        ReflectionTestUtils.setField(bus, "maxConnections", 3);
+        ReflectionTestUtils.setField(bus, "maxConnectionsPerUser", 2);
+    }
+
+    @Test
+    void userLimitIsEnforcedBeforeTheStreamIsSubscribed() {
+        bus.subscribe("alice", null);
+        bus.subscribe("alice", null);
+
+        SubscriptionLimitException e = assertThrows(SubscriptionLimitException.class, () -> bus.subscribe("alice", null));
+        assertTrue(e.isPerUser());
+        assertEquals(2, bus.stats().getConnections());
+        assertEquals(1, bus.stats().getRejectedConnections());
+    }
+
+    @Test
+    void nodeLimitIsNotAPerUserLimit() {
+        bus.subscribe("alice", null);
+        bus.subscribe("bob", null);
+        bus.subscribe("carol", null);
+
+        SubscriptionLimitException e = assertThrows(SubscriptionLimitException.class, () -> bus.subscribe("dave", null));
+        assertFalse(e.isPerUser());
+    }
+
+    @Test
+    void slotIsGivenBackOnceWhenTheStreamEnds() {
+        Disposable first = bus.subscribe("alice", null).subscribe();
+        bus.subscribe("alice", null).subscribe();
+
+        first.dispose();
+        first.dispose();
+
+        assertEquals(1, bus.stats().getConnections());
+        assertDoesNotThrow(() -> bus.subscribe("alice", null));
+    }
+}
@@ -0,0 +1,120 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.payload.LogRange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildLogStoreTest {
+
+    private static final long BUILD_ID = 7L;
+
+    @TempDir
+    Path baseDir;
+
+    private BuildLogStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        store = new BuildLogStore();
+        ReflectionTestUtils.setField(store, "defaultRepoPath", baseDir.toString());
+        // small segments, so a few hundred lines span many of them
+        ReflectionTestUtils.setField(store, "segmentBytes", 512L);
+        ReflectionTestUtils.setField(store, "archiveDir", "");
+        store.init();
+    }
+
+    @Test
+    void readsAnyRangeThroughTheIndex() throws IOException {
+        write(1_000);
+
+        assertTrue(segmentFiles().size() > 1);
+        for (long offset : new long[]{0, 1, 63, 64, 65, 127, 128, 500, 999}) {
+            LogRange range = store.read(BUILD_ID, offset, 10);
+            assertEquals(1_000, range.getTotalLines());
+            assertEquals(expected(offset, Math.min(10, 1_000 - offset)), range.getLines(), "offset " + offset);
+            assertEquals(offset + range.getLines().size(), range.getNextOffset());
+        }
+    }
+
+    @Test
+    void readsPastTheEndAreEmpty() throws IOException {
+        write(100);
+
+        assertEquals(List.of(), store.read(BUILD_ID, 100, 10).getLines());
+        assertEquals(List.of(), store.read(BUILD_ID, 0, 0).getLines());
+        assertEquals(expected(95, 5), store.read(BUILD_ID, 95, 10).getLines());
+        assertEquals(expected(90, 10), store.tail(BUILD_ID, 10).getLines());
+    }
+
+    @Test
+    void onlyFlushedLinesAreVisible() throws IOException {
+        SegmentedLogWriter writer = store.openWriter(BUILD_ID);
+        writer.appendLine(line(0));
+        writer.flush();
+        writer.appendLine(line(1));
+
+        assertEquals(1, store.read(BUILD_ID, 0, 10).getTotalLines());
+        assertEquals(2, store.flush(BUILD_ID));
+        store.closeWriter(BUILD_ID);
+        assertEquals(expected(0, 2), store.read(BUILD_ID, 0, 10).getLines());
+    }
+
+    @Test
+    void lineBreaksInsideALineDoNotShiftTheIndex() throws IOException {
+        SegmentedLogWriter writer = store.openWriter(BUILD_ID);
+        for (long i = 0; i < 200; i++) {
+            writer.appendLine(i == 10 ? "first\nsecond\r\nthird" : line(i));
+        }
+        store.closeWriter(BUILD_ID);
+
+        assertEquals(200, store.read(BUILD_ID, 0, 0).getTotalLines());
+        assertEquals(List.of("first second  third"), store.read(BUILD_ID, 10, 1).getLines());
+        assertEquals(expected(128, 3), store.read(BUILD_ID, 128, 3).getLines());
+    }
+
+    @Test
+    void compressedSegmentsReadTheSame() throws IOException {
+        write(1_000);
+        List<String> before = store.read(BUILD_ID, 300, 200).getLines();
+
+        store.compress(BUILD_ID);
+
+        assertTrue(segmentFiles().stream().allMatch(name -> name.endsWith(BuildLogStore.COMPRESSED_SUFFIX)));
+        assertEquals(before, store.read(BUILD_ID, 300, 200).getLines());
+        assertEquals(expected(999, 1), store.read(BUILD_ID, 999, 10).getLines());
+    }
+
+    private void write(long lines) throws IOException {
+        SegmentedLogWriter writer = store.openWriter(BUILD_ID);
+        for (long i = 0; i < lines; i++) {
+            writer.appendLine(line(i));
+        }
+        store.closeWriter(BUILD_ID);
+    }
+
+    private List<String> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(store.directory(BUILD_ID))) {
+            return files.map(file -> file.getFileName().toString()).filter(name -> !name.equals(BuildLogStore.INDEX_FILE)).toList();
+        }
+    }
+
+    private static List<String> expected(long offset, long count) {
+        return LongStream.range(offset, offset + count).mapToObj(BuildLogStoreTest::line).toList();
+    }
+
+    private static String line(long i) {
+        return "line " + i + " of the build output";
+    }
+}
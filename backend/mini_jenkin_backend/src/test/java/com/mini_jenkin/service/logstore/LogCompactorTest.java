@@ -0,0 +1,78 @@
+package com.mini_jenkin.service.logstore;
+
+import com.mini_jenkin.entity.Project;
+import com.mini_jenkin.entity.ProjectConfig;
+import com.mini_jenkin.repository.BuildRepository;
+import com.mini_jenkin.repository.ProjectConfigRepository;
+import com.mini_jenkin.repository.ProjectLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LogCompactorTest {
+
+    @Mock
+    private BuildLogStore buildLogStore;
+    @Mock
+    private BuildRepository buildRepository;
+    @Mock
+    private ProjectConfigRepository projectConfigRepository;
+    @Mock
+    private ProjectLogRepository projectLogRepository;
+    @Mock
+    private HistoryPartitionManager historyPartitionManager;
+    @Mock
+    private ExecutorService logCompactionExecutor;
+
+    @InjectMocks
+    private LogCompactor logCompactor;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(logCompactor, "defaultRetentionBuilds", 100);
+        ReflectionTestUtils.setField(logCompactor, "defaultRetentionDays", 90);
+        ReflectionTestUtils.setField(logCompactor, "chunkSize", 1000);
+        Project project = new Project();
+        project.setProjectId(7L);
+        ProjectConfig config = new ProjectConfig();
+        config.setProject(project);
+        when(projectConfigRepository.findAll()).thenReturn(List.of(config));
+        when(buildRepository.findAllByProjectIdAndFinishedAtIsNotNullOrderByIdDesc(7L)).thenReturn(List.of());
+    }
+
+    @Test
+    void expiredRowsAreDeletedInChunksUntilNoneAreLeft() {
+        when(projectLogRepository.deleteChunkOlderThan(eq(7L), any(), any(), eq(1000))).thenReturn(1000, 1000, 250, 0);
+
+        logCompactor.sweep();
+
+        verify(projectLogRepository, times(4)).deleteChunkOlderThan(eq(7L), eq(LocalDateTime.of(1970, 1, 1, 0, 0)), any(), eq(1000));
+    }
+
+    @Test
+    void monthsDroppedAsPartitionsAreLeftToThem() {
+        LocalDateTime retainedFrom = LocalDateTime.now().minusMonths(6).withDayOfMonth(1).toLocalDate().atStartOfDay();
+        when(historyPartitionManager.retainedFrom("project_logs")).thenReturn(retainedFrom);
+        when(projectLogRepository.deleteChunkOlderThan(anyLong(), any(), any(), eq(1000))).thenReturn(0);
+
+        logCompactor.sweep();
+
+        verify(projectLogRepository).deleteChunkOlderThan(eq(7L), eq(retainedFrom), any(), eq(1000));
+    }
+}
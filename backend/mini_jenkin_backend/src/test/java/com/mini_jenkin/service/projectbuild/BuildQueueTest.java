@@ -0,0 +1,183 @@
+package com.mini_jenkin.service.projectbuild;
+
+import com.mini_jenkin.entity.BuildTrigger;
+import com.mini_jenkin.entity.ConcurrencyPolicy;
+import com.mini_jenkin.exception.BuildQueueFullException;
+import com.mini_jenkin.payload.BuildQueuePosition;
+import com.mini_jenkin.payload.QueueRejectionPolicy;
+import com.mini_jenkin.payload.QueuedBuild;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BuildQueueTest {
+
+    private BuildQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        queue = new BuildQueue();
+        ReflectionTestUtils.setField(queue, "capacity", 3);
+        ReflectionTestUtils.setField(queue, "rejectionPolicy", QueueRejectionPolicy.REJECT);
+        ReflectionTestUtils.setField(queue, "workers", 1);
+    }
+
+    @Test
+    void higherPriorityLaneIsDispatchedFirstThenArrivalOrder() throws InterruptedException {
+        queue.offer(build(1L, 10L, BuildTrigger.SCHEDULED));
+        queue.offer(build(2L, 20L, BuildTrigger.WEBHOOK));
+        queue.offer(build(3L, 30L, BuildTrigger.MANUAL));
+
+        assertEquals(List.of(3L, 2L, 1L), queue.snapshot().stream().map(BuildQueuePosition::getBuildId).toList());
+        assertEquals(3L, queue.take().getBuildId());
+        assertEquals(2L, queue.take().getBuildId());
+        assertEquals(1L, queue.take().getBuildId());
+    }
+
+    @Test
+    void positionCountsBuildsAhead() {
+        queue.offer(build(1L, 10L, BuildTrigger.WEBHOOK));
+        queue.offer(build(2L, 20L, BuildTrigger.MANUAL));
+
+        assertEquals(1, queue.position(2L).orElseThrow().getPosition());
+        assertEquals(2, queue.position(1L).orElseThrow().getPosition());
+        assertTrue(queue.position(3L).isEmpty());
+    }
+
+    @Test
+    void fullQueueRejectsByDefault() {
+        queue.offer(build(1L, 10L, BuildTrigger.MANUAL));
+        queue.offer(build(2L, 20L, BuildTrigger.MANUAL));
+        queue.offer(build(3L, 30L, BuildTrigger.MANUAL));
+
+        assertThrows(BuildQueueFullException.class, () -> queue.offer(build(4L, 40L, BuildTrigger.MANUAL)));
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    void fullQueueDropsTheLowestLaneForAHigherOne() {
+        ReflectionTestUtils.setField(queue, "rejectionPolicy", QueueRejectionPolicy.DROP_LOWEST);
+        queue.offer(build(1L, 10L, BuildTrigger.SCHEDULED));
+        queue.offer(build(2L, 20L, BuildTrigger.SCHEDULED));
+        queue.offer(build(3L, 30L, BuildTrigger.WEBHOOK));
+
+        QueuedBuild evicted = queue.offer(build(4L, 40L, BuildTrigger.MANUAL));
+
+        assertEquals(2L, evicted.getBuildId());
+        assertTrue(queue.position(2L).isEmpty());
+        assertThrows(BuildQueueFullException.class, () -> queue.offer(build(5L, 50L, BuildTrigger.SCHEDULED)));
+    }
+
+    @Test
+    void pushIsFoldedIntoTheQueuedWebhookBuildOfItsBranch() {
+        QueuedBuild queued = build(1L, 10L, BuildTrigger.WEBHOOK);
+        queued.setQueuedAt(LocalDateTime.now());
+        queue.offer(queued);
+
+        long before = System.currentTimeMillis();
+        QueuedBuild folded = queue.coalesce(10L, "main", "def456", 5_000, 60_000);
+
+        assertSame(queued, folded);
+        assertEquals("def456", folded.getCommitSha());
+        assertTrue(folded.getNotBeforeMillis() >= before + 5_000);
+        assertNull(queue.coalesce(10L, "other", "def456", 5_000, 60_000));
+        assertNull(queue.coalesce(20L, "main", "def456", 5_000, 60_000));
+    }
+
+    @Test
+    void debounceNeverPassesTheMaximumDelay() {
+        QueuedBuild queued = build(1L, 10L, BuildTrigger.WEBHOOK);
+        queued.setQueuedAt(LocalDateTime.now().minusSeconds(50));
+        queue.offer(queued);
+
+        QueuedBuild folded = queue.coalesce(10L, "main", "def456", 30_000, 60_000);
+
+        assertTrue(folded.getNotBeforeMillis() <= System.currentTimeMillis() + 10_000);
+    }
+
+    @Test
+    void onlyWaitingWebhookBuildsAreCoalesced() throws InterruptedException {
+        queue.offer(build(1L, 10L, BuildTrigger.MANUAL));
+        assertNull(queue.coalesce(10L, "main", "def456", 5_000, 60_000));
+
+        queue.offer(build(2L, 20L, BuildTrigger.WEBHOOK));
+        assertEquals(1L, queue.take().getBuildId());
+        assertEquals(2L, queue.take().getBuildId());
+        assertNull(queue.coalesce(20L, "main", "def456", 5_000, 60_000));
+    }
+
+    @Test
+    void removedBuildIsNoLongerCoalesced() {
+        queue.offer(build(1L, 10L, BuildTrigger.WEBHOOK));
+
+        assertTrue(queue.remove(1L));
+        assertFalse(queue.remove(1L));
+        assertNull(queue.coalesce(10L, "main", "def456", 5_000, 60_000));
+    }
+
+    @Test
+    void serializedProjectWaitsForItsRunningBuild() throws InterruptedException {
+        queue.offer(build(1L, 10L, BuildTrigger.MANUAL));
+        queue.offer(build(2L, 10L, BuildTrigger.MANUAL));
+        queue.offer(build(3L, 20L, BuildTrigger.SCHEDULED));
+
+        QueuedBuild running = queue.take();
+        assertEquals(1L, running.getBuildId());
+        // build 2 is ahead but its project is busy
+        assertEquals(3L, queue.take().getBuildId());
+
+        queue.release(running);
+        assertEquals(2L, queue.take().getBuildId());
+    }
+
+    @Test
+    void supersededBuildsAreRemoved() {
+        queue.offer(build(1L, 10L, BuildTrigger.MANUAL));
+        queue.offer(build(2L, 20L, BuildTrigger.MANUAL));
+        queue.offer(build(3L, 10L, BuildTrigger.MANUAL));
+
+        List<QueuedBuild> superseded = queue.removeSuperseded(10L, "main", 3L);
+
+        assertEquals(List.of(1L), superseded.stream().map(QueuedBuild::getBuildId).toList());
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    void buildsOfOtherBranchesAreNotSuperseded() {
+        QueuedBuild feature = build(1L, 10L, BuildTrigger.WEBHOOK);
+        feature.setBranch("feature-x");
+        queue.offer(feature);
+        queue.offer(build(2L, 10L, BuildTrigger.MANUAL));
+        QueuedBuild newer = build(3L, 10L, BuildTrigger.WEBHOOK);
+        newer.setBranch("feature-x");
+        queue.offer(newer);
+
+        List<QueuedBuild> superseded = queue.removeSuperseded(10L, "main", 4L);
+
+        assertEquals(List.of(2L), superseded.stream().map(QueuedBuild::getBuildId).toList());
+        assertTrue(queue.position(1L).isPresent());
+        assertTrue(queue.position(3L).isPresent());
+    }
+
+    private static QueuedBuild build(Long buildId, Long projectId, BuildTrigger trigger) {
+        return QueuedBuild.builder()
+                .buildId(buildId)
+                .projectId(projectId)
+                .trigger(trigger)
+                .priority(trigger.getPriority())
+                .branch("main")
+                .commitSha("abc123")
+                .concurrencyPolicy(ConcurrencyPolicy.QUEUE)
+                .build();
+    }
+}
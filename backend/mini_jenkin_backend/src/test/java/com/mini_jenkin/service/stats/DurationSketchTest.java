@@ -0,0 +1,96 @@
+package com.mini_jenkin.service.stats;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DurationSketchTest {
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        DurationSketch sketch = new DurationSketch();
+
+        assertEquals(0, sketch.getCount());
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void quantilesAreWithinOnePercent() {
+        DurationSketch sketch = new DurationSketch();
+        for (long millis = 1; millis <= 10_000; millis++) {
+            sketch.add(millis);
+        }
+
+        assertWithinOnePercent(5_000, sketch.quantile(0.5));
+        assertWithinOnePercent(9_000, sketch.quantile(0.9));
+        assertWithinOnePercent(9_900, sketch.quantile(0.99));
+        assertWithinOnePercent(10_000, sketch.quantile(1));
+    }
+
+    @Test
+    void zeroDurationsAreCounted() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(0);
+        sketch.add(1_000);
+
+        assertEquals(4, sketch.getCount());
+        assertEquals(0L, sketch.quantile(0.5));
+        assertWithinOnePercent(1_000, sketch.quantile(1));
+    }
+
+    @Test
+    void mergedSketchMatchesOneSketchOfAllValues() {
+        DurationSketch all = new DurationSketch();
+        DurationSketch first = new DurationSketch();
+        DurationSketch second = new DurationSketch();
+        for (long millis = 0; millis < 2_000; millis++) {
+            all.add(millis * 7);
+            (millis % 2 == 0 ? first : second).add(millis * 7);
+        }
+
+        first.merge(second);
+
+        assertEquals(all.getCount(), first.getCount());
+        for (double q : new double[]{0, 0.25, 0.5, 0.75, 0.95, 1}) {
+            assertEquals(all.quantile(q), first.quantile(q));
+        }
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(0);
+        for (long millis = 1; millis < 100_000; millis *= 3) {
+            sketch.add(millis);
+        }
+
+        DurationSketch copy = DurationSketch.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.getCount(), copy.getCount());
+        for (double q : new double[]{0, 0.5, 0.9, 1}) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+    }
+
+    @Test
+    void missingBytesAreAnEmptySketch() {
+        assertEquals(0, DurationSketch.fromBytes(null).getCount());
+        assertEquals(0, DurationSketch.fromBytes(new byte[0]).getCount());
+    }
+
+    @Test
+    void unknownVersionIsRejected() {
+        byte[] bytes = new DurationSketch().toBytes();
+        bytes[0] = 99;
+
+        assertThrows(IllegalArgumentException.class, () -> DurationSketch.fromBytes(bytes));
+    }
+
+    private static void assertWithinOnePercent(long expected, Long actual) {
+        assertEquals(expected, actual, expected * 0.01);
+    }
+}
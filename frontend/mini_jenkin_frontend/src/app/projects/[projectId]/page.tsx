@@ -370,7 +370,8 @@ const ProjectDetails: React.FC = () => {
             const response = await loadAllProjectLogs(id);
             if (response && response.data) {
                 // Sort logs by time and ID to ensure proper ordering
-                const logData = Array.isArray(response.data) ? response.data : [response.data];
+                // the endpoint returns the newest page of logs as { items, nextCursor, hasMore }
+                const logData = Array.isArray(response.data) ? response.data : (response.data.items ?? []);
                 const sortedLogs = logData.sort((a, b) => {
                     // First sort by time
                     const timeA = new Date(a.logTime).getTime();
@@ -400,6 +401,7 @@ const ProjectDetails: React.FC = () => {
             const response = await getProjectLogs(id);
             if (response && response.data) {
                 // Process the response to extract log entries
+                // /logs/{id} returns the latest log entry on its own, not a page
                 const newLogs = Array.isArray(response.data) ? response.data : [response.data];
 
                 // Filter out logs we already have
@@ -455,7 +457,7 @@ const ProjectDetails: React.FC = () => {
     const loadBuildHistory = async () => {
         const response = await getAllBuildLogs(projectId!!);
         console.log(response);
-        const newLogs = Array.isArray(response.data) ? response.data : [response.data];
+        const newLogs = Array.isArray(response.data) ? response.data : (response.data?.items ?? []);
         const sortedLogs = newLogs.sort((a, b) => {
             // If times are the same, higher ID first
             return b.id - a.id;